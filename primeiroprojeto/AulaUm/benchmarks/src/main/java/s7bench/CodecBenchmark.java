@@ -0,0 +1,69 @@
+package s7bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Codec de um item por tipo de dado: montagem do Read Var / Write Var e
+ * decodificação da resposta (decodeValue, o mesmo caminho dos extract*FromResponse).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"boolean", "byte", "integer", "float", "string", "block"})
+    public String type;
+
+    private int size;
+    private Object value;
+    private byte[] readResponse;
+
+    @Setup
+    public void setup() throws Throwable {
+        size = switch (type) {
+            case "boolean", "byte" -> 1;
+            case "integer" -> 2;
+            case "float" -> 4;
+            default -> 32;
+        };
+        value = switch (type) {
+            case "boolean" -> true;
+            case "byte" -> (byte) 0x5A;
+            case "integer" -> 1234;
+            case "float" -> 3.14f;
+            case "string" -> "SMARTCLP";
+            default -> new byte[size];
+        };
+        readResponse = S7.respond(S7.simulator(480), S7.createReadRequest(1, 10, 3, size, type));
+    }
+
+    @Benchmark
+    public byte[] encodeRead() throws Throwable {
+        return S7.createReadRequest(1, 10, 3, size, type);
+    }
+
+    @Benchmark
+    public byte[] encodeWrite() throws Throwable {
+        return S7.createWriteRequest(1, 10, 3, size, type, value);
+    }
+
+    @Benchmark
+    public Object decode() throws Throwable {
+        return S7.decodeValue(type, readResponse, 25, size);
+    }
+}
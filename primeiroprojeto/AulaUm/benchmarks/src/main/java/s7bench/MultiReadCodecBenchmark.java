@@ -0,0 +1,65 @@
+package s7bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Codec do Read Var com vários itens (tipos misturados, com padding de itens
+ * ímpares) e a compilação do plano de leitura coalescida.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiReadCodecBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int items;
+
+    private List<Object> job;
+    private byte[] response;
+
+    @Setup
+    public void setup() throws Throwable {
+        job = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            job.add(switch (i % 4) {
+                case 0 -> S7.readItem(1, i * 4, 0, 1, "boolean");
+                case 1 -> S7.readItem(1, i * 4, 0, 1, "byte");
+                case 2 -> S7.readItem(1, i * 4, 0, 2, "integer");
+                default -> S7.readItem(1, i * 4, 0, 4, "float");
+            });
+        }
+        response = S7.respond(S7.simulator(480), S7.createMultiReadRequest(job));
+    }
+
+    @Benchmark
+    public byte[] encode() throws Throwable {
+        return S7.createMultiReadRequest(job);
+    }
+
+    @Benchmark
+    public List<Object> decode() throws Throwable {
+        return S7.parseMultiReadResponse(response, response.length, job);
+    }
+
+    @Benchmark
+    public Object compileCoalescedPlan() throws Throwable {
+        return S7.compilePlan(16, job, 480);
+    }
+}
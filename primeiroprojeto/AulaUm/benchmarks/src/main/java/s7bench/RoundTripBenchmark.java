@@ -0,0 +1,116 @@
+package s7bench;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Round trip completo do PlcConnector contra o S7PlcSimulator em loopback.
+ * Com latencyMicros = 0 mede só o custo do cliente; valores maiores imitam a rede da planta.
+ *
+ * Compara 20 INTs lidos um a um, em um Read Var com 20 itens e coalescidos
+ * pelo ReadPlanner em um bloco; e o readBlock com cópia versus direto para um
+ * ByteBuffer do chamador. SampleTime dá os percentis de latência.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private static final int TAGS = 20;
+
+    @Param({"240", "960"})
+    public int pduLength;
+
+    @Param({"2000"})
+    public int blockSize;
+
+    @Param({"0"})
+    public long latencyMicros;
+
+    private Object simulator;
+    private Object connector;
+    private Object tag;
+    private List<Object> itens;
+    private Object plan;
+    private ByteBuffer destino;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        simulator = S7.startSimulator(pduLength, latencyMicros, 0);
+        connector = S7.connect("127.0.0.1", S7.simulatorPort(simulator));
+        tag = S7.tagOfInt(1, 0);
+
+        itens = new ArrayList<>();
+        for (int i = 0; i < TAGS; i++) {
+            itens.add(S7.readItem(1, i * 2, 0, 2, "integer"));
+        }
+        plan = S7.compilePlan(16, itens, S7.pduLength(connector));
+        destino = ByteBuffer.allocateDirect(blockSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        S7.disconnect(connector);
+        S7.closeSimulator(simulator);
+    }
+
+    @Benchmark
+    public int readInt() throws Throwable {
+        return S7.readInt(connector, 1, 0);
+    }
+
+    @Benchmark
+    public int readIntTag() throws Throwable {
+        return S7.getInt(connector, tag);
+    }
+
+    @Benchmark
+    public int read20Single() throws Throwable {
+        int soma = 0;
+        for (int i = 0; i < TAGS; i++) {
+            soma += S7.readInt(connector, 1, i * 2);
+        }
+        return soma;
+    }
+
+    @Benchmark
+    public List<Object> read20MultiItem() throws Throwable {
+        return S7.readMulti(connector, itens);
+    }
+
+    @Benchmark
+    public List<Object> read20Coalesced() throws Throwable {
+        return S7.executePlan(plan, connector);
+    }
+
+    @Benchmark
+    public byte[] readBlock() throws Throwable {
+        return S7.readBlock(connector, 1, 0, blockSize);
+    }
+
+    @Benchmark
+    public ByteBuffer readBlockInto() throws Throwable {
+        destino.clear();
+        S7.readBlock(connector, 1, 0, destino);
+        return destino;
+    }
+}
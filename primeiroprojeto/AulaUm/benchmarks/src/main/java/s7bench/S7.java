@@ -0,0 +1,197 @@
+package s7bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Acesso às classes de ../src a partir dos benchmarks.
+ *
+ * O projeto usa o pacote default, que não pode ser importado de um pacote
+ * nomeado, e o JMH exige que os benchmarks estejam em um pacote. Os métodos
+ * são resolvidos uma vez em MethodHandles static final, que o JIT trata como
+ * constantes: o custo da chamada some no código compilado.
+ *
+ * Tipos do projeto (PlcConnector, S7ReadItem, Tag, ...) circulam como Object.
+ */
+final class S7 {
+
+    private static final MethodHandle CREATE_READ_REQUEST =
+            metodo("S7ProtocolClient", "createReadRequest", int.class, int.class, int.class, int.class, String.class);
+    private static final MethodHandle CREATE_WRITE_REQUEST =
+            metodo("S7ProtocolClient", "createWriteRequest", int.class, int.class, int.class, int.class, String.class, Object.class);
+    private static final MethodHandle DECODE_VALUE =
+            metodo("S7ProtocolClient", "decodeValue", String.class, byte[].class, int.class, int.class);
+    private static final MethodHandle CREATE_MULTI_READ_REQUEST =
+            metodo("S7ProtocolClient", "createMultiReadRequest", List.class);
+    private static final MethodHandle PARSE_MULTI_READ_RESPONSE =
+            metodo("S7ProtocolClient", "parseMultiReadResponse", byte[].class, int.class, List.class);
+
+    private static final MethodHandle NEW_READ_ITEM =
+            construtor("S7ReadItem", int.class, int.class, int.class, int.class, String.class);
+    private static final MethodHandle TAG_OF_INT = metodo("Tag", "ofInt", int.class, int.class);
+    private static final MethodHandle NEW_PLANNER = construtor("ReadPlanner", int.class);
+    private static final MethodHandle PLANNER_COMPILE =
+            metodo("ReadPlanner", "compile", List.class, int.class);
+    private static final MethodHandle PLAN_EXECUTE =
+            metodo("ReadPlan", "execute", classe("PlcConnector"));
+
+    private static final MethodHandle NEW_CONNECTOR = construtor("PlcConnector", String.class, int.class);
+    private static final MethodHandle CONNECT = metodo("PlcConnector", "connect");
+    private static final MethodHandle DISCONNECT = metodo("PlcConnector", "disconnect");
+    private static final MethodHandle PDU_LENGTH = metodo("PlcConnector", "getPduLength");
+    private static final MethodHandle READ_INT = metodo("PlcConnector", "readInt", int.class, int.class);
+    private static final MethodHandle GET_INT_TAG = metodo("PlcConnector", "getInt", classe("Tag"));
+    private static final MethodHandle READ_BLOCK =
+            metodo("PlcConnector", "readBlock", int.class, int.class, int.class);
+    private static final MethodHandle READ_BLOCK_INTO =
+            metodo("PlcConnector", "readBlock", int.class, int.class, ByteBuffer.class);
+    private static final MethodHandle READ_MULTI = metodo("PlcConnector", "readMulti", List.class);
+
+    private static final MethodHandle NEW_SIMULATOR = construtor("S7PlcSimulator", int.class);
+    private static final MethodHandle SIM_PDU = metodo("S7PlcSimulator", "pduLength", int.class);
+    private static final MethodHandle SIM_LATENCY = metodo("S7PlcSimulator", "latencyMicros", long.class, long.class);
+    private static final MethodHandle SIM_START = metodo("S7PlcSimulator", "start");
+    private static final MethodHandle SIM_PORT = metodo("S7PlcSimulator", "getPort");
+    private static final MethodHandle SIM_CLOSE = metodo("S7PlcSimulator", "close");
+    private static final MethodHandle SIM_RESPONDER = metodo("S7PlcSimulator", "responder", byte[].class);
+
+    private S7() {
+    }
+
+    // ------------------------------- Codec -------------------------------
+    static byte[] createReadRequest(int db, int offset, int bit, int size, String type) throws Throwable {
+        return (byte[]) (Object) CREATE_READ_REQUEST.invokeExact(db, offset, bit, size, (Object) type);
+    }
+
+    static byte[] createWriteRequest(int db, int offset, int bit, int size, String type, Object value) throws Throwable {
+        return (byte[]) (Object) CREATE_WRITE_REQUEST.invokeExact(db, offset, bit, size, (Object) type, value);
+    }
+
+    static Object decodeValue(String type, byte[] data, int pos, int size) throws Throwable {
+        return (Object) DECODE_VALUE.invokeExact((Object) type, (Object) data, pos, size);
+    }
+
+    static byte[] createMultiReadRequest(List<Object> itens) throws Throwable {
+        return (byte[]) (Object) CREATE_MULTI_READ_REQUEST.invokeExact((Object) itens);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> parseMultiReadResponse(byte[] frame, int length, List<Object> job) throws Throwable {
+        return (List<Object>) (Object) PARSE_MULTI_READ_RESPONSE.invokeExact((Object) frame, length, (Object) job);
+    }
+
+    static Object readItem(int db, int offset, int bit, int size, String type) throws Throwable {
+        return (Object) NEW_READ_ITEM.invokeExact(db, offset, bit, size, (Object) type);
+    }
+
+    static Object tagOfInt(int db, int offset) throws Throwable {
+        return (Object) TAG_OF_INT.invokeExact(db, offset);
+    }
+
+    static Object compilePlan(int maxGap, List<Object> tags, int pduLength) throws Throwable {
+        Object planner = (Object) NEW_PLANNER.invokeExact(maxGap);
+        return (Object) PLANNER_COMPILE.invokeExact(planner, (Object) tags, pduLength);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> executePlan(Object plan, Object connector) throws Throwable {
+        return (List<Object>) (Object) PLAN_EXECUTE.invokeExact(plan, connector);
+    }
+
+    // ------------------------------- Conexão -------------------------------
+    static Object connect(String ip, int port) throws Throwable {
+        Object connector = (Object) NEW_CONNECTOR.invokeExact((Object) ip, port);
+        CONNECT.invokeExact(connector);
+        return connector;
+    }
+
+    static void disconnect(Object connector) throws Throwable {
+        DISCONNECT.invokeExact(connector);
+    }
+
+    static int pduLength(Object connector) throws Throwable {
+        return (int) PDU_LENGTH.invokeExact(connector);
+    }
+
+    static int readInt(Object connector, int db, int offset) throws Throwable {
+        return (int) READ_INT.invokeExact(connector, db, offset);
+    }
+
+    static int getInt(Object connector, Object tag) throws Throwable {
+        return (int) GET_INT_TAG.invokeExact(connector, tag);
+    }
+
+    static byte[] readBlock(Object connector, int db, int offset, int size) throws Throwable {
+        return (byte[]) (Object) READ_BLOCK.invokeExact(connector, db, offset, size);
+    }
+
+    static void readBlock(Object connector, int db, int offset, ByteBuffer dst) throws Throwable {
+        READ_BLOCK_INTO.invokeExact(connector, db, offset, (Object) dst);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> readMulti(Object connector, List<Object> itens) throws Throwable {
+        return (List<Object>) (Object) READ_MULTI.invokeExact(connector, (Object) itens);
+    }
+
+    // ------------------------------- Simulador -------------------------------
+    // Simulador sem start(): só a memória dos DBs, para montar respostas do codec
+    static Object simulator(int pduLength) throws Throwable {
+        Object sim = (Object) NEW_SIMULATOR.invokeExact(0);
+        return (Object) SIM_PDU.invokeExact(sim, pduLength);
+    }
+
+    static Object startSimulator(int pduLength, long latencyMicros, long jitterMicros) throws Throwable {
+        Object sim = simulator(pduLength);
+        sim = (Object) SIM_LATENCY.invokeExact(sim, latencyMicros, jitterMicros);
+        return (Object) SIM_START.invokeExact(sim);
+    }
+
+    static int simulatorPort(Object sim) throws Throwable {
+        return (int) SIM_PORT.invokeExact(sim);
+    }
+
+    static void closeSimulator(Object sim) throws Throwable {
+        SIM_CLOSE.invokeExact(sim);
+    }
+
+    static byte[] respond(Object sim, byte[] job) throws Throwable {
+        return (byte[]) (Object) SIM_RESPONDER.invokeExact(sim, (Object) job);
+    }
+
+    // ------------------------------- Resolução -------------------------------
+    static Class<?> classe(String nome) {
+        try {
+            return Class.forName(nome);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError("Classe " + nome + " não encontrada em ../src: " + e);
+        }
+    }
+
+    // Tipos de referência apagados para Object (erase) para que os call sites usem invokeExact
+    private static MethodHandle metodo(String classe, String nome, Class<?>... params) {
+        try {
+            Method m = classe(classe).getDeclaredMethod(nome, params);
+            m.setAccessible(true);
+            MethodHandle h = MethodHandles.lookup().unreflect(m);
+            return h.asType(h.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle construtor(String classe, Class<?>... params) {
+        try {
+            Constructor<?> c = classe(classe).getDeclaredConstructor(params);
+            c.setAccessible(true);
+            MethodHandle h = MethodHandles.lookup().unreflectConstructor(c);
+            return h.asType(h.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -3,18 +3,24 @@ import java.util.*;
 public class AppSmartClp {
     private static Scanner scanner = new Scanner(System.in);
     private static PlcConnector connector;
+    private static String ip;
+    private static final int PORTA = 102; // porta padrao S7
 
     public static void main(String[] args) throws Exception {
 
+        // Modo lote: AppSmartClp --batch <ip> [script|-] [--tsv] [--porta N] [--sequencial]
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchRunner.executar(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
         System.out.println("===================================================");
         System.out.println("===    Terminal de Comunicaçao CLP Siemens S7   ===");
         System.out.println("===================================================");
 
         System.out.println("Digite o IP do CLP: ");
-        String ip = scanner.nextLine();
-        int porta = 102; // porta padrao S7
+        ip = scanner.nextLine();
 
-        connector = new PlcConnector(ip, porta);
+        connector = new PlcConnector(ip, PORTA);
 
         try {
             System.out.println("Conectando ao CLP...");
@@ -35,6 +41,10 @@ public class AppSmartClp {
                         processarEscrita();
                         break;
 
+                    case 3:
+                        processarMonitoramento();
+                        break;
+
                     case 0:
                         connector.disconnect();
                         sair = true;
@@ -57,6 +67,7 @@ public class AppSmartClp {
         System.out.println("\n--- MENU PRINCIPAL ---");
         System.out.println("1. Ler Variável");
         System.out.println("2. Escrever Variável");
+        System.out.println("3. Monitorar Variáveis (polling)");
         System.out.println("0. Sair e Desconectar");
         System.out.print("Escolha uma Opção: ");
 
@@ -145,14 +156,65 @@ public class AppSmartClp {
         }
     }
 
+    private static void processarMonitoramento() {
+        try {
+            System.out.print("DB Number: ");
+            int db = Integer.parseInt(scanner.nextLine());
+            System.out.print("Offset inicial: ");
+            int offset = Integer.parseInt(scanner.nextLine());
+            System.out.print("Quantidade de posições: ");
+            int quantidade = Integer.parseInt(scanner.nextLine());
+
+            System.out.println("Tipo: 2-Byte, 3-Int, 4-Float");
+            int tipo = Integer.parseInt(scanner.nextLine());
+            System.out.print("Intervalo (ms): ");
+            long intervalo = Long.parseLong(scanner.nextLine());
+
+            List<S7ReadItem> itens = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                switch (tipo) {
+                    case 3 -> itens.add(S7ReadItem.ofInt(db, offset + i * 2));
+                    case 4 -> itens.add(S7ReadItem.ofFloat(db, offset + i * 4));
+                    default -> itens.add(S7ReadItem.ofByte(db, offset + i));
+                }
+            }
+
+            // O monitoramento usa uma sessão própria no agendador; o menu continua com a conexão atual
+            try (PollScheduler agendador = new PollScheduler()) {
+                agendador.register(new PollGroup("CLI", ip, PORTA, itens, intervalo), new PollListener() {
+                    @Override
+                    public void onResult(PollResult resultado) {
+                        StringBuilder sb = new StringBuilder();
+                        sb.append(String.format("[%tT.%<tL] ", resultado.timestampMillis()));
+                        for (S7ReadResult r : resultado.valores()) {
+                            try {
+                                sb.append(r.isOk() ? r.getValue() : "ERR").append(' ');
+                            } catch (Exception e) {
+                                sb.append("ERR ");
+                            }
+                        }
+                        sb.append(String.format("(%.1f ms)", resultado.duracaoNanos() / 1_000_000.0));
+                        System.out.println(sb);
+                    }
+
+                    @Override
+                    public void onStatus(PollGroup grupo, Status status, Exception erro) {
+                        System.out.println("Status: " + status + (erro != null ? " - " + erro.getMessage() : ""));
+                    }
+                });
+
+                System.out.println("Monitorando... pressione ENTER para parar.");
+                scanner.nextLine();
+            }
+        } catch (Exception e) {
+            System.out.println("Erro no monitoramento: " + e.getMessage());
+        }
+    }
+
     // auxiliar para exibir o bloco de bytes de froma legivel
 
     private static String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X ", b));
-        }
-        return sb.toString();
+        return S7ProtocolClient.bytesToHex(bytes, bytes.length);
     }
 
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.Flow;
 
 /**
  * BancadaMatrizUI (com escrita por painel) – CORRIGIDO + "Mais opções"
@@ -111,6 +114,27 @@ public class BancadaMatrizUI extends JFrame {
     static class SetorMatrixPanel extends JPanel {
         private static final int PORTA_S7 = 102;
 
+        // Agendador compartilhado por todos os painéis (uma sessão por CLP)
+        private static final PollScheduler AGENDADOR = new PollScheduler(new ReadPlanner(16));
+
+        static {
+            // Conexão reserva por CLP (failover em um round trip): -Dbancada.standby=true
+            AGENDADOR.setStandby(Boolean.getBoolean("bancada.standby"));
+            // Todos os CLPs num thread de I/O NIO em vez de um socket bloqueante cada: -Dbancada.nio=true
+            if (Boolean.getBoolean("bancada.nio")) {
+                try {
+                    S7NioTransport transporte = new S7NioTransport(1);
+                    AGENDADOR.setTransport(transporte);
+                    PlcSessionManager.getInstance().setTransport(transporte);
+                } catch (IOException e) {
+                    System.err.println("Transporte NIO indisponível, usando sockets: " + e.getMessage());
+                }
+            }
+        }
+
+        // Histórico das leituras (opcional): -Dbancada.historico=<diretório>
+        private static final Historian HISTORICO = abrirHistorico(System.getProperty("bancada.historico"));
+
         // Alvos adicionais
         private static final String IP_PROCESSO  = "10.74.241.20";
         private static final String IP_MONTAGEM  = "10.74.241.30";
@@ -120,12 +144,8 @@ public class BancadaMatrizUI extends JFrame {
         private final int[] offsets;
         private final int columns;
 
-        // Conector + worker
-        private PlcConnector connector;
-        private MatrixWorker worker;
-
-        // Lock p/ sincronizar leitura X escrita no mesmo socket
-        private final Object ioLock = new Object();
+        // Registro do painel no agendador (leituras e escritas usam a mesma conexão)
+        private PollScheduler.Handle monitor;
 
         // Controles
         private final JTextField tfDb = new JTextField();
@@ -143,9 +163,8 @@ public class BancadaMatrizUI extends JFrame {
         private final JButton btnGravar        = new JButton("Gravar");
         private final JLabel lblFaixa          = new JLabel();
 
-        // Grade de posições
-        private final JTextField[] campos;
-        private final JLabel[] rotulos;
+        // Grade de posições (um único componente desenhado, com rolagem e zoom)
+        private final GradePosicoes grade;
 
         SetorMatrixPanel(String setor, String ip, Color fundo,
                          int[] offsets, int columns, String defaultTipo) {
@@ -154,8 +173,7 @@ public class BancadaMatrizUI extends JFrame {
             this.ip = ip;
             this.offsets = offsets;
             this.columns = Math.max(1, columns);
-            this.campos = new JTextField[offsets.length];
-            this.rotulos = new JLabel[offsets.length];
+            this.grade = new GradePosicoes(offsets, this.columns);
 
             setOpaque(true);
             setBackground(fundo);
@@ -218,38 +236,9 @@ public class BancadaMatrizUI extends JFrame {
 
             add(topo, BorderLayout.NORTH);
 
-            // Centro: grade de offsets
-            int rows = (int) Math.ceil(offsets.length / (double) this.columns);
-            JPanel grade = new JPanel(new GridLayout(rows, this.columns, 8, 8));
-            grade.setOpaque(false);
-
-            for (int i = 0; i < offsets.length; i++) {
-                int off = offsets[i];
-
-                JPanel cel = new JPanel(new BorderLayout(4, 4));
-                cel.setOpaque(true);
-                cel.setBackground(Color.WHITE);
-                cel.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createLineBorder(new Color(209, 107, 165), 1),
-                        BorderFactory.createEmptyBorder(6, 6, 6, 6)
-                ));
-
-                JLabel lbl = new JLabel("Offset " + off, SwingConstants.LEFT);
-                lbl.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-
-                JTextField tf = new JTextField("—");
-                tf.setEditable(false);
-                tf.setHorizontalAlignment(JTextField.CENTER);
-                tf.setFont(new Font("Consolas", Font.BOLD, 14));
-
-                cel.add(lbl, BorderLayout.NORTH);
-                cel.add(tf, BorderLayout.CENTER);
-
-                rotulos[i] = lbl;
-                campos[i] = tf;
-                grade.add(cel);
-            }
-            add(grade, BorderLayout.CENTER);
+            // Centro: grade de offsets (clique numa posição preenche o offset de escrita)
+            grade.setAoSelecionar(i -> tfWriteOffset.setText(String.valueOf(grade.getOffset(i))));
+            add(grade.comRolagem(), BorderLayout.CENTER);
 
             // Habilitações e dicas
             cbTipo.addActionListener(e -> atualizarCampos());
@@ -313,17 +302,7 @@ public class BancadaMatrizUI extends JFrame {
             if (!isBit) tfBit.setText("");
 
             // Ajuste visual dos rótulos conforme tipo
-            for (int i = 0; i < offsets.length; i++) {
-                int off = offsets[i];
-                String prefixo = switch (tipo) {
-                    case "bit"  -> "DBX";
-                    case "byte" -> "DBB";
-                    case "int"  -> "DBW";
-                    case "float"-> "DBD";
-                    default     -> "DB?";
-                };
-                rotulos[i].setText("Offset " + off + "  (" + prefixo + off + ")");
-            }
+            grade.setTipo(tipo);
 
             // Dica do valor esperado
             if (isBit) {
@@ -340,7 +319,7 @@ public class BancadaMatrizUI extends JFrame {
         }
 
         private synchronized void iniciar() {
-            if (worker != null && !worker.isDone()) {
+            if (monitor != null && monitor.isAtivo()) {
                 JOptionPane.showMessageDialog(this, "Este monitor já está rodando.", "Aviso",
                         JOptionPane.INFORMATION_MESSAGE);
                 return;
@@ -369,26 +348,53 @@ public class BancadaMatrizUI extends JFrame {
             lblStatus.setIcon(criarBola(Color.ORANGE));
 
             // Limpa campos
-            for (JTextField tf : campos) tf.setText("…");
+            grade.preencher(GradePosicoes.Estado.AGUARDANDO);
 
-            // Inicia o worker
-            worker = new MatrixWorker(db, tipo, bit, intervaloMs);
-            worker.execute();
+            // Registra o grupo no agendador
+            List<S7ReadItem> itens = new ArrayList<>(offsets.length);
+            for (int off : offsets) {
+                itens.add(criarItem(db, off, tipo, bit));
+            }
+            PollGroup grupo = new PollGroup(setor, ip, PORTA_S7, itens, intervaloMs);
+
+            // A grade assina o fluxo do grupo no EDT com só o ciclo mais recente pendente:
+            // com o EDT ocupado os ciclos intermediários são descartados, sem fila crescendo
+            MatrixListener tela = new MatrixListener(itens);
+            PollPublisher fluxo = new PollPublisher(grupo, tela);
+            fluxo.subscribe(tela, 1, PollPublisher.Overflow.CONFLAR, SwingUtilities::invokeLater);
+            if (HISTORICO == null) {
+                monitor = AGENDADOR.register(grupo, fluxo);
+                return;
+            }
+            // Com histórico: toda amostra é gravada antes de chegar ao fluxo
+            try {
+                monitor = AGENDADOR.register(grupo, new HistorianSink(HISTORICO, grupo, fluxo));
+            } catch (IOException ex) {
+                System.err.println("Histórico indisponível para " + setor + ": " + ex.getMessage());
+                monitor = AGENDADOR.register(grupo, fluxo);
+            }
         }
 
-        private synchronized void parar() {
-            // Sinaliza para o worker não reconectar nem atualizar UI
-            if (worker != null) {
-                worker.requestStop();
+        private static Historian abrirHistorico(String dir) {
+            if (dir == null || dir.isBlank()) {
+                return null;
             }
-
             try {
-                if (connector != null) {
-                    connector.disconnect();
-                }
-            } catch (Exception ignored) {}
+                Historian h = new Historian(Path.of(dir));
+                Runtime.getRuntime().addShutdownHook(new Thread(h::close, "historian-close"));
+                return h;
+            } catch (IOException e) {
+                System.err.println("Não foi possível abrir o histórico em " + dir + ": " + e.getMessage());
+                return null;
+            }
+        }
 
-            connector = null;
+        private synchronized void parar() {
+            // Remove o grupo do agendador: sem reconexão nem atualização de UI depois disso
+            if (monitor != null) {
+                monitor.cancel();
+            }
+            monitor = null;
 
             // Estado visual final (força vermelho e desabilita escrita)
             lblStatus.setText("Desconectado");
@@ -414,182 +420,117 @@ public class BancadaMatrizUI extends JFrame {
             btnGravar.setEnabled(enabled);
         }
 
-        // ---------------- Worker: lê todos os offsets definidos ----------------
-        private class MatrixWorker extends SwingWorker<Void, MatrixWorker.Frame> {
-            private final int db;
-            private final String tipo;
-            private final Integer bit;
-            private final int intervaloMs;
-
-            // >>> Flag de execução controlada pelo botão Parar
-            private final AtomicBoolean running = new AtomicBoolean(true);
-
-            MatrixWorker(int db, String tipo, Integer bit, int intervaloMs) {
-                this.db = db;
-                this.tipo = tipo;
-                this.bit = bit;
-                this.intervaloMs = intervaloMs;
+        private static S7ReadItem criarItem(int db, int offset, String tipo, Integer bit) {
+            return switch (tipo) {
+                case "bit" -> S7ReadItem.bit(db, offset, bit);
+                case "int" -> S7ReadItem.ofInt(db, offset);
+                case "float" -> S7ReadItem.ofFloat(db, offset);
+                default -> S7ReadItem.ofByte(db, offset);
+            };
+        }
+
+        // ---------------- Listener do agendador: atualiza a grade no EDT ----------------
+        // Valores chegam pela assinatura do PollPublisher (onNext, já no EDT); eventos pelo PollListener
+        private class MatrixListener implements PollListener, Flow.Subscriber<PollResult> {
+            private final ChangeDetector detector; // usado só no EDT
+            private boolean jaConectou;
+
+            MatrixListener(List<S7ReadItem> itens) {
+                this.detector = new ChangeDetector(itens, Deadband.NENHUMA);
             }
 
-            void requestStop() {
-                running.set(false);
-                cancel(true);
+            private boolean ativo() {
+                return monitor != null && monitor.isAtivo();
             }
 
             @Override
-            protected Void doInBackground() {
-                // Conectar
-                try {
-                    connector = new PlcConnector(ip, PORTA_S7);
-                    connector.connect();
+            public void onSubscribe(Flow.Subscription assinatura) {
+                assinatura.request(Long.MAX_VALUE);
+            }
 
-                    if (!running.get() || isCancelled()) {
-                        // Se parou muito rápido, encerra logo
-                        safeDisconnect();
-                        return null;
-                    }
+            // Só as células que mudaram desde o último ciclo exibido são formatadas
+            @Override
+            public void onNext(PollResult resultado) {
+                if (!ativo()) return; // evita atualizar UI após Parar
+                for (TagChange m : detector.update(resultado.valores(), resultado.timestampMillis())) {
+                    grade.setResultado(m.indice(), m.resultado());
+                }
+            }
+
+            @Override
+            public void onError(Throwable erro) {
+            }
 
-                    SwingUtilities.invokeLater(() -> {
-                        if (running.get() && !isCancelled()) {
+            @Override
+            public void onComplete() {
+            }
+
+            // Valores vêm por onNext
+            @Override
+            public void onResult(PollResult resultado) {
+            }
+
+            @Override
+            public void onStatus(PollGroup grupo, PollListener.Status status, Exception erro) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!ativo()) return;
+                    switch (status) {
+                        case CONECTADO -> {
+                            jaConectou = true;
                             lblStatus.setText("Conectado");
                             lblStatus.setIcon(criarBola(new Color(0,160,0)));
                             setWriteEnabled(true); // habilitar escrita quando conectado
                         }
-                    });
-                } catch (Exception e) {
-                    SwingUtilities.invokeLater(() -> {
-                        lblStatus.setText("Falha ao conectar");
-                        lblStatus.setIcon(criarBola(Color.RED));
-                        setControlesHabilitados(true);
-                        setWriteEnabled(false);
-                    });
-                    cancel(true);
-                    return null;
-                }
-
-                while (running.get() && !isCancelled()) {
-                    try {
-                        String[] valores = new String[offsets.length];
-                        synchronized (ioLock) {
-                            for (int i = 0; i < offsets.length; i++) {
-                                int off = offsets[i];
-                                valores[i] = lerComoTexto(db, off, tipo, bit);
-                            }
+                        case RECONECTANDO -> {
+                            lblStatus.setText("Reconectando...");
+                            lblStatus.setIcon(criarBola(Color.ORANGE));
+                            setWriteEnabled(false);
                         }
-                        publish(new Frame(valores));
-
-                        // dormir respeitando interrupção
-                        for (int slept = 0; slept < intervaloMs && running.get() && !isCancelled(); slept += 50) {
-                            Thread.sleep(50);
-                        }
-                    } catch (InterruptedException ie) {
-                        break; // cancelado
-                    } catch (Exception e) {
-                        // Se já foi solicitado parar, sai sem reconectar
-                        if (!running.get() || isCancelled()) break;
-
-                        // Erro: tenta reconectar somente se ainda estiver rodando
-                        SwingUtilities.invokeLater(() -> {
-                            if (running.get() && !isCancelled()) {
+                        case FALHA -> {
+                            if (jaConectou) {
+                                // Já estava rodando: o agendador continua tentando
                                 lblStatus.setText("Reconectando...");
                                 lblStatus.setIcon(criarBola(Color.ORANGE));
                                 setWriteEnabled(false);
+                            } else {
+                                monitor.cancel();
+                                monitor = null;
+                                lblStatus.setText("Falha ao conectar");
+                                lblStatus.setIcon(criarBola(Color.RED));
+                                setControlesHabilitados(true);
+                                setWriteEnabled(false);
                             }
-                        });
-
-                        safeDisconnect();
-
-                        // Se já foi parado, evite reconectar
-                        if (!running.get() || isCancelled()) break;
-
-                        dormir(1200);
-
-                        try {
-                            connector = new PlcConnector(ip, PORTA_S7);
-                            connector.connect();
-
-                            if (!running.get() || isCancelled()) {
-                                safeDisconnect();
-                                break;
-                            }
-
-                            SwingUtilities.invokeLater(() -> {
-                                if (running.get() && !isCancelled()) {
-                                    lblStatus.setText("Conectado");
-                                    lblStatus.setIcon(criarBola(new Color(0,160,0)));
-                                    setWriteEnabled(true);
-                                }
-                            });
-                        } catch (Exception ex) {
-                            // Se reconexão falhar e já parou, sai
-                            if (!running.get() || isCancelled()) break;
-                            dormir(1500);
+                        }
+                        default -> {
                         }
                     }
-                }
-
-                // Saída do laço: garante desconexão e UI consistente
-                safeDisconnect();
-                SwingUtilities.invokeLater(() -> {
-                    lblStatus.setText("Desconectado");
-                    lblStatus.setIcon(criarBola(Color.RED));
-                    setControlesHabilitados(true);
-                    setWriteEnabled(false);
                 });
-                return null;
-            }
-
-            private void safeDisconnect() {
-                try { if (connector != null) connector.disconnect(); } catch (Exception ignored) {}
-                connector = null;
             }
 
-            private void dormir(long ms) {
-                try { Thread.sleep(ms); } catch (InterruptedException ignored) {}
-            }
-
-            private String lerComoTexto(int db, int offset, String tipo, Integer bit) throws Exception {
-                return switch (tipo) {
-                    case "bit" -> {
-                        boolean b;
-                        synchronized (ioLock) { b = connector.readBit(db, offset, bit); }
-                        yield String.valueOf(b);
-                    }
-                    case "byte" -> {
-                        byte b;
-                        synchronized (ioLock) { b = connector.readByte(db, offset); }
-                        yield String.valueOf(b & 0xFF);
-                    }
-                    case "int" -> {
-                        int v;
-                        synchronized (ioLock) { v = connector.readInt(db, offset); }
-                        yield String.valueOf(v);
-                    }
-                    case "float" -> {
-                        float f;
-                        synchronized (ioLock) { f = connector.readFloat(db, offset); }
-                        yield String.format("%.3f", f);
-                    }
-                    default -> "—";
-                };
+            @Override
+            public void onOverrun(PollGroup grupo, int ciclosPerdidos, long duracaoNanos) {
+                String aviso = String.format("Último ciclo levou %d ms (%d ciclo(s) pulado(s))",
+                        duracaoNanos / 1_000_000, ciclosPerdidos);
+                SwingUtilities.invokeLater(() -> {
+                    if (ativo()) lblStatus.setToolTipText(aviso);
+                });
             }
 
+            // Link saturado: o agendador esticou (ou devolveu) o intervalo do painel
             @Override
-            protected void process(List<Frame> chunks) {
-                if (!running.get() || isCancelled()) return; // evita atualizar UI após Parar
-                Frame f = chunks.get(chunks.size() - 1);
-                String[] vs = f.valores();
-                for (int i = 0; i < vs.length; i++) {
-                    campos[i].setText(vs[i]);
-                }
+            public void onRateChange(PollGroup grupo, long periodoEfetivoMs) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!ativo()) return;
+                    lblStatus.setText(periodoEfetivoMs == grupo.periodoMs()
+                            ? "Conectado"
+                            : "Conectado (link saturado: " + periodoEfetivoMs + " ms)");
+                });
             }
-
-            record Frame(String[] valores) {}
         }
 
         // ---------------- Escrita manual via botão "Gravar" ----------------
         private void escreverValor() {
-            if (connector == null) {
+            if (monitor == null || !monitor.isConectado()) {
                 JOptionPane.showMessageDialog(this, "Conecte primeiro (Iniciar).",
                         "Atenção", JOptionPane.WARNING_MESSAGE);
                 return;
@@ -630,51 +571,53 @@ public class BancadaMatrizUI extends JFrame {
                     if (bit < 0 || bit > 7) throw new IllegalArgumentException("Bit deve ser 0..7.");
                 }
 
-                boolean ok;
-                synchronized (ioLock) {
-                    switch (tipo) {
-                        case "bit" -> {
-                            boolean logic;
-                            if (valStr.equalsIgnoreCase("true") || valStr.equals("1")) {
-                                logic = true;
-                            } else if (valStr.equalsIgnoreCase("false") || valStr.equals("0")) {
-                                logic = false;
-                            } else {
-                                throw new IllegalArgumentException("Valor para bit deve ser true/false ou 1/0.");
-                            }
-                            ok = connector.writeBit(db, offset, bit, logic);
-                        }
-                        case "byte" -> {
-                            int n = Integer.parseInt(valStr);
-                            if (n < 0 || n > 255) throw new IllegalArgumentException("Byte deve ser 0..255.");
-                            ok = connector.writeByte(db, offset, (byte) n);
-                        }
-                        case "int" -> {
-                            int n = Integer.parseInt(valStr);
-                            ok = connector.writeInt(db, offset, n);
-                        }
-                        case "float" -> {
-                            float f = Float.parseFloat(valStr.replace(",", "."));
-                            ok = connector.writeFloat(db, offset, f);
+                // Fora da EDT: a escrita entra na fila da sessão e a resposta volta por invokeLater
+                final Integer bitEscrita = bit;
+                monitor.executarAsync(PollGroup.Prioridade.ALTA, connector -> switch (tipo) {
+                    case "bit" -> {
+                        boolean logic;
+                        if (valStr.equalsIgnoreCase("true") || valStr.equals("1")) {
+                            logic = true;
+                        } else if (valStr.equalsIgnoreCase("false") || valStr.equals("0")) {
+                            logic = false;
+                        } else {
+                            throw new IllegalArgumentException("Valor para bit deve ser true/false ou 1/0.");
                         }
-                        default -> throw new IllegalArgumentException("Tipo não suportado para escrita: " + tipo);
+                        yield connector.writeBit(db, offset, bitEscrita, logic);
                     }
-                }
-
-                if (ok) {
-                    JOptionPane.showMessageDialog(this, "Escrita realizado com sucesso!",
-                            "OK", JOptionPane.INFORMATION_MESSAGE);
-                    // feedback visual imediato se o offset estiver no painel
-                    for (int i = 0; i < offsets.length; i++) {
-                        if (offsets[i] == offset) {
-                            campos[i].setText(valStr);
-                            break;
+                    case "byte" -> {
+                        int n = Integer.parseInt(valStr);
+                        if (n < 0 || n > 255) throw new IllegalArgumentException("Byte deve ser 0..255.");
+                        yield connector.writeByte(db, offset, (byte) n);
+                    }
+                    case "int" -> {
+                        int n = Integer.parseInt(valStr);
+                        yield connector.writeInt(db, offset, n);
+                    }
+                    case "float" -> {
+                        float f = Float.parseFloat(valStr.replace(",", "."));
+                        yield connector.writeFloat(db, offset, f);
+                    }
+                    default -> throw new IllegalArgumentException("Tipo não suportado para escrita: " + tipo);
+                }).whenComplete((ok, erro) -> SwingUtilities.invokeLater(() -> {
+                    if (erro != null) {
+                        JOptionPane.showMessageDialog(this, "Erro ao escrever: " + erro.getMessage(),
+                                "Erro", JOptionPane.ERROR_MESSAGE);
+                    } else if (ok) {
+                        JOptionPane.showMessageDialog(this, "Escrita realizado com sucesso!",
+                                "OK", JOptionPane.INFORMATION_MESSAGE);
+                        // feedback visual imediato se o offset estiver no painel
+                        int i = grade.indiceDoOffset(offset);
+                        if (i >= 0) {
+                            grade.setValor(i, "bit".equals(tipo)
+                                    ? (valStr.equalsIgnoreCase("true") || valStr.equals("1") ? 1 : 0)
+                                    : Double.parseDouble(valStr.replace(",", ".")));
                         }
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Falha na escrita (retorno do CLP).",
+                                "Erro", JOptionPane.ERROR_MESSAGE);
                     }
-                } else {
-                    JOptionPane.showMessageDialog(this, "Falha na escrita (retorno do CLP).",
-                            "Erro", JOptionPane.ERROR_MESSAGE);
-                }
+                }));
 
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Erro ao escrever: " + ex.getMessage(),
@@ -824,40 +767,38 @@ public class BancadaMatrizUI extends JFrame {
 
                     @Override
                     protected Void doInBackground() {
-                        PlcConnector tmpConnector = null;
-                        boolean reutilizarPainel = (targetIp.equals(ip) && connector != null);
+                        PlcSessionManager.Lease sessao = null;
+                        PollScheduler.Handle painel = monitor;
+                        boolean reutilizarPainel = (targetIp.equals(ip) && painel != null && painel.isConectado());
 
                         try {
                             if (reutilizarPainel) {
-                                // Usa a conexão do painel (sincronizada)
-                                synchronized (ioLock) {
-                                    if (isLeitura) {
-                                        resultadoMsg = lerValor(connector, db, offset, bit, tipo);
-                                    } else {
-                                        String valorStr = tfValor2.getText().trim();
-                                        boolean ok = escreverValor(connector, db, offset, bit, tipo, valorStr);
-                                        resultadoMsg = ok ? "Escrita realizada com sucesso (painel)." : "Falha na escrita (painel).";
-                                    }
+                                // Usa a conexão do painel (fila da sessão: passa na frente das leituras do polling)
+                                if (isLeitura) {
+                                    resultadoMsg = painel.executar(conn -> lerValor(conn, db, offset, bit, tipo));
+                                } else {
+                                    String valorStr = tfValor2.getText().trim();
+                                    boolean ok = painel.executar(conn -> escreverValor(conn, db, offset, bit, tipo, valorStr));
+                                    resultadoMsg = ok ? "Escrita realizada com sucesso (painel)." : "Falha na escrita (painel).";
                                 }
                             } else {
-                                // Conexão temporária ao outro IP
-                                tmpConnector = new PlcConnector(targetIp, PORTA_S7);
-                                tmpConnector.connect();
+                                // Sessão reaproveitada do pool (sem novo TCP + COTP + Setup a cada operação)
+                                sessao = PlcSessionManager.getInstance().acquire(targetIp);
                                 if (isLeitura) {
-                                    resultadoMsg = lerValor(tmpConnector, db, offset, bit, tipo);
+                                    resultadoMsg = lerValor(sessao.connector(), db, offset, bit, tipo);
                                 } else {
                                     String valorStr = tfValor2.getText().trim();
-                                    boolean ok = escreverValor(tmpConnector, db, offset, bit, tipo, valorStr);
+                                    boolean ok = escreverValor(sessao.connector(), db, offset, bit, tipo, valorStr);
                                     resultadoMsg = ok ? "Escrita realizada com sucesso." : "Falha na escrita.";
                                 }
                             }
                         } catch (Exception ex) {
                             cor = new Color(150, 20, 20);
                             resultadoMsg = "Erro: " + ex.getMessage();
+                            // Falha de comunicação: não devolve a conexão ao pool
+                            if (sessao != null) sessao.invalidate();
                         } finally {
-                            try {
-                                if (tmpConnector != null) tmpConnector.disconnect();
-                            } catch (Exception ignored) {}
+                            if (sessao != null) sessao.close();
                         }
                         return null;
                     }
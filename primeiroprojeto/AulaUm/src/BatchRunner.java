@@ -0,0 +1,388 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modo lote do AppSmartClp: executa um script de leituras e escritas sem menu
+ * e escreve os resultados em CSV (ou TSV) na saída padrão.
+ *
+ *   java AppSmartClp --batch 10.74.241.10 comissionamento.txt > resultado.csv
+ *   gerar-script | java AppSmartClp --batch 10.74.241.10 - --tsv
+ *
+ * Script: um comando por linha, # para comentários.
+ *   read  DB6.DBW10
+ *   read  DB6.DBB0[32]          (bloco: valor em hexadecimal)
+ *   write DB6.DBD14 1.5
+ *   write DB6.DBX20.3 true
+ *   write DB6.DBB0[4] 0A0B0C0D
+ *
+ * Comandos consecutivos do mesmo tipo (até LOTE_MAX) vão juntos num
+ * readMulti/writeMulti, em pipeline por padrão. A ordem entre leituras e
+ * escritas é mantida. Blocos maiores que um PDU vão sozinhos, em partes
+ * (readBlock/writeBlock). latencia_ms é o tempo do lote em que a operação foi
+ * enviada. O resumo (totais e round trip dos PDUs) vai para a saída de erro.
+ */
+public class BatchRunner {
+
+    static final int LOTE_MAX = 200;
+
+    // Resposta de Read Var: cabeçalho S7 Ack_Data (12) + parâmetros (2) + cabeçalho do item (4)
+    private static final int OVERHEAD_RESPOSTA = 18;
+
+    private record Comando(int linha, String texto, S7ReadItem item, S7WriteItem escrita) {
+        boolean isEscrita() {
+            return escrita != null;
+        }
+    }
+
+    private final PlcConnector connector;
+    private final PrintStream saida;
+    private final char separador;
+
+    private final List<Comando> pendentes = new ArrayList<>();
+    private int leituras, escritas, erros;
+    private long nanosLeitura, nanosEscrita;
+
+    public BatchRunner(PlcConnector connector, PrintStream saida, boolean tsv) {
+        this.connector = connector;
+        this.saida = saida;
+        this.separador = tsv ? '\t' : ',';
+    }
+
+    /**
+     * Ponto de entrada do --batch. Retorna o código de saída do processo:
+     * 0 sem erros, 1 com operações com erro, 2 erro de uso ou conexão.
+     */
+    public static int executar(String[] args) {
+        String ip = null;
+        String script = "-";
+        boolean tsv = false;
+        boolean pipeline = true;
+        int porta = PlcSessionManager.PORTA_S7;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--tsv" -> tsv = true;
+                    case "--sequencial" -> pipeline = false;
+                    case "--porta" -> porta = Integer.parseInt(args[++i]);
+                    default -> {
+                        if (ip == null) ip = args[i];
+                        else script = args[i];
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            ip = null;
+        }
+        if (ip == null) {
+            System.err.println("Uso: AppSmartClp --batch <ip> [script|-] [--tsv] [--porta N] [--sequencial]");
+            return 2;
+        }
+
+        PlcConnector connector = new PlcConnector(ip, porta);
+        connector.setPipelined(pipeline);
+        try (BufferedReader entrada = script.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+            connector.connect();
+            BatchRunner runner = new BatchRunner(connector, System.out, tsv);
+            return runner.run(entrada) == 0 ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Erro no modo lote: " + e.getMessage());
+            return 2;
+        } finally {
+            try {
+                connector.disconnect();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    // Executa o script inteiro; retorna a quantidade de operações com erro
+    public int run(BufferedReader entrada) throws Exception {
+        PlcMetrics metricas = connector.getMetrics();
+        long pdusAntes = metricas.getRequests();
+        long enviadosAntes = metricas.getBytesOut();
+        long recebidosAntes = metricas.getBytesIn();
+        long inicio = System.nanoTime();
+
+        linha("linha", "operacao", "endereco", "valor", "status", "latencia_ms");
+        String texto;
+        int numero = 0;
+        while ((texto = entrada.readLine()) != null) {
+            numero++;
+            String t = texto.trim();
+            if (t.isEmpty() || t.startsWith("#")) {
+                continue;
+            }
+
+            Comando c;
+            try {
+                c = interpretar(numero, t);
+            } catch (IllegalArgumentException e) {
+                executarPendentes();
+                erros++;
+                linha(String.valueOf(numero), "?", t, "", "ERRO: " + e.getMessage(), "");
+                continue;
+            }
+
+            if (!pendentes.isEmpty() && (pendentes.get(0).isEscrita() != c.isEscrita() || pendentes.size() == LOTE_MAX)) {
+                executarPendentes();
+            }
+            if (!c.isEscrita() && c.item().responseDataLength() > connector.getPduLength() - OVERHEAD_RESPOSTA) {
+                // Bloco maior que um PDU: leitura própria, em partes
+                executarPendentes();
+                lerBlocoGrande(c);
+                continue;
+            }
+            if (c.isEscrita() && c.escrita().size() > connector.getMaxWriteBlockSize()) {
+                // Idem para a escrita: writeBlock divide o bloco em Write Vars que cabem no PDU
+                executarPendentes();
+                escreverBlocoGrande(c);
+                continue;
+            }
+            pendentes.add(c);
+        }
+        executarPendentes();
+
+        long total = System.nanoTime() - inicio;
+        resumo(total, metricas.getRequests() - pdusAntes,
+                metricas.getBytesOut() - enviadosAntes, metricas.getBytesIn() - recebidosAntes);
+        return erros;
+    }
+
+    // ------------------------------- Interpretação -------------------------------
+    static Comando interpretar(int linha, String texto) {
+        String[] partes = texto.split("\\s+", 3);
+        String op = partes[0].toLowerCase();
+        boolean escrita = switch (op) {
+            case "read", "r" -> false;
+            case "write", "w" -> true;
+            default -> throw new IllegalArgumentException("Operação desconhecida: " + partes[0]);
+        };
+        if (partes.length < 2) {
+            throw new IllegalArgumentException("Comando incompleto.");
+        }
+        S7ReadItem item = S7ReadItem.parse(partes[1]);
+
+        if (!escrita) {
+            if (partes.length > 2) {
+                throw new IllegalArgumentException("read não recebe valor.");
+            }
+            return new Comando(linha, texto, item, null);
+        }
+        if (partes.length < 3) {
+            throw new IllegalArgumentException("write sem valor.");
+        }
+        return new Comando(linha, texto, item, paraEscrita(item, partes[2].trim()));
+    }
+
+    private static S7WriteItem paraEscrita(S7ReadItem item, String valor) {
+        try {
+            return switch (item.type()) {
+                case "boolean" -> {
+                    String v = valor.toLowerCase();
+                    if (!v.equals("true") && !v.equals("false") && !v.equals("1") && !v.equals("0")) {
+                        throw new IllegalArgumentException("Valor de bit inválido: " + valor);
+                    }
+                    yield S7WriteItem.bit(item.db(), item.offset(), item.bit(), v.equals("true") || v.equals("1"));
+                }
+                case "byte" -> {
+                    int v = Integer.parseInt(valor);
+                    if (v < -128 || v > 255) {
+                        throw new IllegalArgumentException("Byte fora de faixa: " + valor);
+                    }
+                    yield S7WriteItem.ofByte(item.db(), item.offset(), (byte) v);
+                }
+                case "integer" -> {
+                    int v = Integer.parseInt(valor);
+                    if (v < Short.MIN_VALUE || v > 0xFFFF) {
+                        throw new IllegalArgumentException("INT fora de faixa: " + valor);
+                    }
+                    yield S7WriteItem.ofInt(item.db(), item.offset(), v);
+                }
+                case "float" -> S7WriteItem.ofFloat(item.db(), item.offset(), Float.parseFloat(valor));
+                default -> {
+                    byte[] dados = PlcConnector.hexStringToByteArray(valor.replace(" ", ""));
+                    if (dados.length != item.size()) {
+                        throw new IllegalArgumentException("Bloco de " + item.size() + " bytes recebeu " + dados.length + ".");
+                    }
+                    yield S7WriteItem.block(item.db(), item.offset(), dados);
+                }
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido: " + valor);
+        }
+    }
+
+    // ------------------------------- Execução -------------------------------
+    private void executarPendentes() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        boolean escrita = pendentes.get(0).isEscrita();
+        long inicio = System.nanoTime();
+        List<?> resultados;
+        Exception falha = null;
+        try {
+            resultados = escrita ? connector.writeMulti(itensEscrita()) : connector.readMulti(itensLeitura());
+        } catch (Exception e) {
+            resultados = null;
+            falha = e;
+        }
+        long duracao = System.nanoTime() - inicio;
+        String latencia = milissegundos(duracao);
+
+        if (escrita) {
+            escritas += pendentes.size();
+            nanosEscrita += duracao;
+        } else {
+            leituras += pendentes.size();
+            nanosLeitura += duracao;
+        }
+
+        for (int i = 0; i < pendentes.size(); i++) {
+            Comando c = pendentes.get(i);
+            String op = escrita ? "write" : "read";
+            if (falha != null) {
+                erros++;
+                linha(String.valueOf(c.linha()), op, c.item().endereco(), "", "ERRO: " + falha.getMessage(), latencia);
+            } else if (escrita) {
+                S7WriteResult r = (S7WriteResult) resultados.get(i);
+                if (!r.isOk()) erros++;
+                linha(String.valueOf(c.linha()), op, c.item().endereco(), texto(c.escrita().value()),
+                        r.isOk() ? "OK" : "ERRO: " + r.getErro(), latencia);
+            } else {
+                S7ReadResult r = (S7ReadResult) resultados.get(i);
+                if (!r.isOk()) erros++;
+                linha(String.valueOf(c.linha()), op, c.item().endereco(), r.isOk() ? valor(r) : "",
+                        r.isOk() ? "OK" : "ERRO: " + r.getErro(), latencia);
+            }
+        }
+        pendentes.clear();
+        saida.flush();
+    }
+
+    private void lerBlocoGrande(Comando c) {
+        long inicio = System.nanoTime();
+        String valor = "";
+        String status = "OK";
+        try {
+            byte[] dados = connector.readBlock(c.item().db(), c.item().offset(), c.item().size());
+            valor = S7ProtocolClient.bytesToHex(dados, dados.length);
+        } catch (Exception e) {
+            erros++;
+            status = "ERRO: " + e.getMessage();
+        }
+        long duracao = System.nanoTime() - inicio;
+        leituras++;
+        nanosLeitura += duracao;
+        linha(String.valueOf(c.linha()), "read", c.item().endereco(), valor, status, milissegundos(duracao));
+        saida.flush();
+    }
+
+    private void escreverBlocoGrande(Comando c) {
+        S7WriteItem w = c.escrita();
+        long inicio = System.nanoTime();
+        String status = "OK";
+        try {
+            if (!connector.writeBlock(w.db(), w.offset(), w.size(), (byte[]) w.value())) {
+                erros++;
+                status = "ERRO: escrita recusada pelo CLP";
+            }
+        } catch (Exception e) {
+            erros++;
+            status = "ERRO: " + e.getMessage();
+        }
+        long duracao = System.nanoTime() - inicio;
+        escritas++;
+        nanosEscrita += duracao;
+        linha(String.valueOf(c.linha()), "write", c.item().endereco(), texto(w.value()), status, milissegundos(duracao));
+        saida.flush();
+    }
+
+    private List<S7ReadItem> itensLeitura() {
+        List<S7ReadItem> itens = new ArrayList<>(pendentes.size());
+        for (Comando c : pendentes) itens.add(c.item());
+        return itens;
+    }
+
+    private List<S7WriteItem> itensEscrita() {
+        List<S7WriteItem> itens = new ArrayList<>(pendentes.size());
+        for (Comando c : pendentes) itens.add(c.escrita());
+        return itens;
+    }
+
+    // ------------------------------- Saída -------------------------------
+    private static String valor(S7ReadResult r) {
+        if (r.item().type().equals("block")) {
+            return S7ProtocolClient.bytesToHex(r.data(), r.data().length);
+        }
+        try {
+            return texto(r.getValue());
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static String texto(Object v) {
+        if (v instanceof Byte b) return String.valueOf(b & 0xFF);
+        if (v instanceof byte[] dados) return S7ProtocolClient.bytesToHex(dados, dados.length);
+        return String.valueOf(v);
+    }
+
+    private static String milissegundos(long nanos) {
+        long micros = nanos / 1000;
+        StringBuilder sb = new StringBuilder().append(micros / 1000).append('.');
+        long fracao = micros % 1000;
+        if (fracao < 100) sb.append('0');
+        if (fracao < 10) sb.append('0');
+        return sb.append(fracao).toString();
+    }
+
+    private void linha(String... campos) {
+        StringBuilder sb = new StringBuilder(80);
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) sb.append(separador);
+            campo(sb, campos[i]);
+        }
+        saida.println(sb);
+    }
+
+    // CSV: aspas só quando o campo tem separador, aspas ou quebra de linha; TSV: tabs viram espaço
+    private void campo(StringBuilder sb, String valor) {
+        if (separador == '\t') {
+            sb.append(valor.replace('\t', ' ').replace('\n', ' '));
+            return;
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0) {
+            sb.append(valor);
+            return;
+        }
+        sb.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+
+    private void resumo(long totalNanos, long pdus, long bytesEnviados, long bytesRecebidos) {
+        PlcMetrics m = connector.getMetrics();
+        int operacoes = leituras + escritas;
+        double segundos = totalNanos / 1e9;
+        PrintStream err = System.err;
+        err.printf("# %d operação(ões): %d leitura(s), %d escrita(s), %d erro(s) em %s ms (%.0f op/s)%n",
+                operacoes, leituras, escritas, erros, milissegundos(totalNanos),
+                segundos > 0 ? operacoes / segundos : 0.0);
+        if (leituras > 0) {
+            err.printf("# leitura: %s ms por operação%n", milissegundos(nanosLeitura / leituras));
+        }
+        if (escritas > 0) {
+            err.printf("# escrita: %s ms por operação%n", milissegundos(nanosEscrita / escritas));
+        }
+        err.printf("# %d PDU(s), %d bytes enviados, %d recebidos | round trip p50 %d us, p99 %d us, max %d us%n",
+                pdus, bytesEnviados, bytesRecebidos,
+                m.getLatencyP50Micros(), m.getLatencyP99Micros(), m.getLatencyMaxMicros());
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detecção de mudança sobre leituras em lote.
+ *
+ * Compara cada resultado com o último publicado da mesma posição e devolve só
+ * o que mudou: return code diferente, bytes diferentes e, para tipos
+ * numéricos com banda morta, variação maior que a banda. Posições iguais não
+ * custam nada além da comparação dos bytes.
+ *
+ * Pode ser usado direto sobre PlcConnector.readMulti ou pelo PollScheduler.subscribe.
+ */
+public class ChangeDetector {
+
+    private final List<S7ReadItem> itens;
+    private final S7DataType[] tipos;
+    private final Deadband[] bandas;
+
+    // Último valor publicado por posição
+    private final byte[][] ultimoDado;
+    private final int[] ultimoRc;
+    private final double[] ultimoValor;
+    private final boolean[] publicado;
+
+    public ChangeDetector(List<S7ReadItem> itens, Deadband padrao) {
+        this.itens = List.copyOf(itens);
+        int n = this.itens.size();
+        tipos = new S7DataType[n];
+        bandas = new Deadband[n];
+        ultimoDado = new byte[n][];
+        ultimoRc = new int[n];
+        ultimoValor = new double[n];
+        publicado = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            tipos[i] = S7DataType.of(this.itens.get(i).type());
+            bandas[i] = padrao;
+        }
+    }
+
+    public List<S7ReadItem> getItens() {
+        return itens;
+    }
+
+    // Banda morta específica de uma posição (configurar antes de iniciar o polling)
+    public synchronized void setDeadband(int indice, Deadband banda) {
+        bandas[indice] = banda;
+    }
+
+    // Próximo update publica todas as posições de novo (ex.: nova tela assinando)
+    public synchronized void reset() {
+        Arrays.fill(publicado, false);
+    }
+
+    /**
+     * Devolve as mudanças em relação ao último valor publicado, na ordem das
+     * tags. Lista vazia (sem alocação) quando nada mudou.
+     */
+    public synchronized List<TagChange> update(List<S7ReadResult> valores, long timestampMillis) {
+        if (valores.size() != itens.size()) {
+            throw new IllegalArgumentException("Esperados " + itens.size() + " resultados, recebidos " + valores.size() + ".");
+        }
+
+        List<TagChange> mudancas = null;
+        for (int i = 0; i < valores.size(); i++) {
+            S7ReadResult r = valores.get(i);
+            if (!mudou(i, r)) {
+                continue;
+            }
+            if (mudancas == null) {
+                mudancas = new ArrayList<>();
+            }
+            mudancas.add(new TagChange(i, r, timestampMillis));
+        }
+        return mudancas == null ? List.of() : mudancas;
+    }
+
+    private boolean mudou(int i, S7ReadResult r) {
+        if (publicado[i] && r.returnCode() == ultimoRc[i]
+                && (!r.isOk() || Arrays.equals(r.data(), ultimoDado[i]))) {
+            return false;
+        }
+
+        double valor = 0;
+        boolean numerico = r.isOk() && numerico(tipos[i], r.data());
+        if (numerico) {
+            valor = valorNumerico(tipos[i], r.data());
+            // Mesmo return code e dentro da banda: não publica (nem guarda, para a deriva somar)
+            if (publicado[i] && r.returnCode() == ultimoRc[i] && ultimoDado[i] != null
+                    && bandas[i] != Deadband.NENHUMA && !bandas[i].excedida(ultimoValor[i], valor)) {
+                return false;
+            }
+        }
+
+        publicado[i] = true;
+        ultimoRc[i] = r.returnCode();
+        ultimoDado[i] = r.data();
+        ultimoValor[i] = valor;
+        return true;
+    }
+
+    private static boolean numerico(S7DataType tipo, byte[] data) {
+        return data != null && tipo.getTamanho() > 0 && tipo != S7DataType.BOOLEAN && data.length >= tipo.getTamanho();
+    }
+
+    private static double valorNumerico(S7DataType tipo, byte[] data) {
+        return switch (tipo) {
+            case INTEGER -> S7ProtocolClient.getInt16(data, 0);
+            case FLOAT -> S7ProtocolClient.getFloat32(data, 0);
+            case BYTE -> data[0] & 0xFF;
+            default -> 0;
+        };
+    }
+
+    // Adaptador para o PollScheduler: repassa só os ciclos com mudança
+    PollListener listener(ChangeListener destino) {
+        return new PollListener() {
+            @Override
+            public void onResult(PollResult resultado) {
+                List<TagChange> mudancas = update(resultado.valores(), resultado.timestampMillis());
+                if (!mudancas.isEmpty()) {
+                    destino.onChanges(resultado.grupo(), mudancas);
+                }
+            }
+
+            @Override
+            public void onStatus(PollGroup grupo, Status status, Exception erro) {
+                destino.onStatus(grupo, status, erro);
+            }
+
+            @Override
+            public void onOverrun(PollGroup grupo, int ciclosPerdidos, long duracaoNanos) {
+                destino.onOverrun(grupo, ciclosPerdidos, duracaoNanos);
+            }
+
+            @Override
+            public void onRateChange(PollGroup grupo, long periodoEfetivoMs) {
+                destino.onRateChange(grupo, periodoEfetivoMs);
+            }
+        };
+    }
+}
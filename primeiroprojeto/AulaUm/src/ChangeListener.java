@@ -0,0 +1,21 @@
+import java.util.List;
+
+/**
+ * Consumidor de uma assinatura por mudança (PollScheduler.subscribe).
+ *
+ * onChanges só é chamado quando pelo menos uma tag mudou, com todas as
+ * mudanças do ciclo juntas; as chamadas vêm do thread da sessão do CLP.
+ */
+public interface ChangeListener {
+
+    void onChanges(PollGroup grupo, List<TagChange> mudancas);
+
+    default void onStatus(PollGroup grupo, PollListener.Status status, Exception erro) {
+    }
+
+    default void onOverrun(PollGroup grupo, int ciclosPerdidos, long duracaoNanos) {
+    }
+
+    default void onRateChange(PollGroup grupo, long periodoEfetivoMs) {
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Banda morta de uma assinatura: variações menores que ela não são publicadas.
+ *
+ * A comparação é sempre contra o último valor publicado (não o último lido),
+ * então uma deriva lenta acaba sendo publicada quando soma mais que a banda.
+ * Vale só para tipos numéricos; os demais publicam qualquer mudança de bytes.
+ */
+public record Deadband(double valor, boolean percentual) {
+
+    public static final Deadband NENHUMA = new Deadband(0, false);
+
+    public Deadband {
+        if (valor < 0) {
+            throw new IllegalArgumentException("A banda morta não pode ser negativa.");
+        }
+    }
+
+    public static Deadband absoluta(double valor) {
+        return new Deadband(valor, false);
+    }
+
+    // Percentual do último valor publicado
+    public static Deadband percentual(double percentual) {
+        return new Deadband(percentual, true);
+    }
+
+    public boolean excedida(double publicado, double atual) {
+        double delta = Math.abs(atual - publicado);
+        if (percentual) {
+            return delta > Math.abs(publicado) * valor / 100.0;
+        }
+        return delta > valor;
+    }
+}
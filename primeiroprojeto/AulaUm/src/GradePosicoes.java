@@ -0,0 +1,500 @@
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Grade de posições desenhada num único componente, para matrizes de
+ * milhares de células (um JPanel + JLabel + JTextField por posição não escala).
+ *
+ *   • Valores em arrays primitivos; o texto de uma célula só é formatado
+ *     quando o valor dela muda
+ *   • Bitmap de células sujas: a área visível fica numa imagem e cada quadro
+ *     redesenha nela só as células alteradas; o paint só copia a imagem
+ *   • Repaint limitado a QUADROS_POR_SEGUNDO, por mais atualizações que cheguem
+ *   • Rolagem (dentro de um JScrollPane) e zoom com Ctrl + roda do mouse;
+ *     com células pequenas o texto some e fica só a cor do estado
+ *
+ * Todos os métodos devem ser chamados no EDT.
+ */
+public class GradePosicoes extends JComponent implements Scrollable {
+
+    public enum Estado { VAZIO, AGUARDANDO, OK, ERRO }
+
+    private static final Estado[] ESTADOS = Estado.values();
+
+    private static final int LARGURA_BASE = 118;
+    private static final int ALTURA_BASE = 46;
+    private static final int ESPACO = 6;
+    private static final double ZOOM_MINIMO = 0.15;
+    private static final double ZOOM_MAXIMO = 4.0;
+    private static final int QUADROS_POR_SEGUNDO = 60;
+
+    // Abaixo disso a célula não tem texto (só cor) ou não tem o rótulo do offset
+    private static final int ALTURA_MIN_TEXTO = 14;
+    private static final int ALTURA_MIN_ROTULO = 34;
+
+    private static final Color BORDA = new Color(209, 107, 165);
+    private static final Color FUNDO_OK = Color.WHITE;
+    private static final Color FUNDO_VAZIO = new Color(0xF4, 0xF0, 0xF2);
+    private static final Color FUNDO_ERRO = new Color(0xFF, 0xD6, 0xD6);
+    private static final Color TEXTO = new Color(51, 51, 51);
+    private static final Color ROTULO = new Color(110, 110, 110);
+    private static final Color SELECAO = new Color(0, 120, 215);
+
+    private final int[] offsets;
+    private final int colunas;
+    private final int linhas;
+
+    // Estado por célula
+    private final double[] valores;
+    private final byte[] estados;
+    private final String[] textos;     // null = formatar no próximo desenho
+    private final long[] sujas;        // bitmap: célula mudou desde o último desenho
+
+    private String tipo = "byte";
+    private double zoom = 1.0;
+    private int largura = LARGURA_BASE;
+    private int altura = ALTURA_BASE;
+    private int espaco = ESPACO;
+    private Font fonteValor;
+    private Font fonteRotulo;
+    private int selecionada = -1;
+    private IntConsumer aoSelecionar;
+
+    // Imagem da área visível; inválida após rolagem, zoom, resize ou troca de tipo
+    private BufferedImage cache;
+    private final Rectangle areaCache = new Rectangle();
+    private boolean cacheValido;
+    private boolean temSujas;
+    private final Timer quadro;
+
+    public GradePosicoes(int[] offsets, int colunas) {
+        this.offsets = offsets.clone();
+        this.colunas = Math.max(1, colunas);
+        this.linhas = (offsets.length + this.colunas - 1) / this.colunas;
+        this.valores = new double[offsets.length];
+        this.estados = new byte[offsets.length];
+        this.textos = new String[offsets.length];
+        this.sujas = new long[(offsets.length + 63) >>> 6];
+
+        quadro = new Timer(1000 / QUADROS_POR_SEGUNDO, e -> proximoQuadro());
+        quadro.setCoalesce(true);
+
+        setOpaque(true);
+        setBackground(new Color(0xFD, 0xE7, 0xF3));
+        setToolTipText("");
+        aplicarZoom(1.0);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int i = celulaEm(e.getPoint());
+                if (i >= 0) {
+                    selecionar(i);
+                    if (aoSelecionar != null) aoSelecionar.accept(i);
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (!e.isControlDown()) {
+                    // Rolagem normal: repassa ao JScrollPane
+                    JScrollPane sp = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, GradePosicoes.this);
+                    if (sp != null) {
+                        sp.dispatchEvent(SwingUtilities.convertMouseEvent(GradePosicoes.this, e, sp));
+                    }
+                    return;
+                }
+                double fator = Math.pow(1.15, -e.getPreciseWheelRotation());
+                zoomEm(zoom * fator, e.getPoint());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    public int getQuantidade() {
+        return offsets.length;
+    }
+
+    public int getOffset(int indice) {
+        return offsets[indice];
+    }
+
+    public double getValor(int indice) {
+        return valores[indice];
+    }
+
+    public Estado getEstado(int indice) {
+        return ESTADOS[estados[indice]];
+    }
+
+    // Tipo de leitura do painel: define prefixo do endereço e formatação do valor
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+        Arrays.fill(textos, null);
+        invalidarCache();
+    }
+
+    public void setValor(int indice, double valor) {
+        if (estados[indice] == Estado.OK.ordinal() && valores[indice] == valor) {
+            return;
+        }
+        valores[indice] = valor;
+        estados[indice] = (byte) Estado.OK.ordinal();
+        sujar(indice);
+    }
+
+    public void setEstado(int indice, Estado estado) {
+        if (estados[indice] == estado.ordinal()) {
+            return;
+        }
+        estados[indice] = (byte) estado.ordinal();
+        sujar(indice);
+    }
+
+    // Resultado de leitura: valor decodificado direto dos bytes, sem boxing
+    public void setResultado(int indice, S7ReadResult r) {
+        byte[] d = r.data();
+        if (!r.isOk() || d == null || d.length == 0) {
+            setEstado(indice, Estado.ERRO);
+            return;
+        }
+        switch (r.item().type()) {
+            case "boolean" -> setValor(indice, d[0] & 0x01);
+            case "integer" -> setValor(indice, d.length >= 2 ? S7ProtocolClient.getInt16(d, 0) : 0);
+            case "float" -> setValor(indice, d.length >= 4 ? S7ProtocolClient.getFloat32(d, 0) : Double.NaN);
+            default -> setValor(indice, d[0] & 0xFF);
+        }
+    }
+
+    public void preencher(Estado estado) {
+        Arrays.fill(estados, (byte) estado.ordinal());
+        Arrays.fill(textos, null);
+        invalidarCache();
+    }
+
+    public void setAoSelecionar(IntConsumer aoSelecionar) {
+        this.aoSelecionar = aoSelecionar;
+    }
+
+    public void selecionar(int indice) {
+        int anterior = selecionada;
+        selecionada = indice;
+        if (anterior >= 0) sujar(anterior);
+        if (indice >= 0) {
+            sujar(indice);
+            scrollRectToVisible(retangulo(indice));
+        }
+    }
+
+    // Índice da célula do offset, ou -1
+    public int indiceDoOffset(int offset) {
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] == offset) return i;
+        }
+        return -1;
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    public void setZoom(double zoom) {
+        Rectangle vis = getVisibleRect();
+        zoomEm(zoom, new Point(vis.x + vis.width / 2, vis.y + vis.height / 2));
+    }
+
+    // ------------------------------- Atualização -------------------------------
+    private void sujar(int indice) {
+        textos[indice] = null;
+        sujas[indice >>> 6] |= 1L << indice;
+        if (!temSujas) {
+            temSujas = true;
+            if (!quadro.isRunning()) quadro.start();
+        }
+    }
+
+    private void proximoQuadro() {
+        if (!temSujas) {
+            quadro.stop(); // sem mudanças: o timer só volta com a próxima atualização
+            return;
+        }
+        Rectangle vis = getVisibleRect();
+        Rectangle alvo = null;
+        // Área a copiar para a tela: só as células sujas visíveis
+        for (int w = 0; w < sujas.length; w++) {
+            long bits = sujas[w];
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                Rectangle r = retangulo(i);
+                if (r.intersects(vis)) {
+                    if (alvo == null) alvo = r; else alvo.add(r);
+                }
+            }
+        }
+        if (alvo != null) {
+            repaint(alvo);
+        } else {
+            // Nada visível mudou: descarta os bits (células fora da tela são desenhadas ao rolar)
+            Arrays.fill(sujas, 0L);
+            temSujas = false;
+        }
+    }
+
+    private void invalidarCache() {
+        cacheValido = false;
+        repaint();
+    }
+
+    // ------------------------------- Desenho -------------------------------
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle vis = getVisibleRect();
+        if (vis.isEmpty()) return;
+
+        if (cache == null || cache.getWidth() < vis.width || cache.getHeight() < vis.height) {
+            cache = getGraphicsConfiguration() != null
+                    ? getGraphicsConfiguration().createCompatibleImage(vis.width, vis.height)
+                    : new BufferedImage(vis.width, vis.height, BufferedImage.TYPE_INT_RGB);
+            cacheValido = false;
+        }
+        if (!vis.equals(areaCache)) {
+            cacheValido = false;
+        }
+
+        Graphics2D gc = cache.createGraphics();
+        try {
+            gc.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            gc.translate(-vis.x, -vis.y);
+            if (!cacheValido) {
+                desenharTudo(gc, vis);
+                areaCache.setBounds(vis);
+                cacheValido = true;
+            } else {
+                desenharSujas(gc, vis);
+            }
+        } finally {
+            gc.dispose();
+        }
+        Arrays.fill(sujas, 0L);
+        temSujas = false;
+
+        g.drawImage(cache, vis.x, vis.y, vis.x + vis.width, vis.y + vis.height,
+                0, 0, vis.width, vis.height, null);
+    }
+
+    private void desenharTudo(Graphics2D g, Rectangle vis) {
+        g.setColor(getBackground());
+        g.fillRect(vis.x, vis.y, vis.width, vis.height);
+
+        int passoX = largura + espaco;
+        int passoY = altura + espaco;
+        int col0 = Math.max(0, (vis.x - espaco) / passoX);
+        int col1 = Math.min(colunas - 1, (vis.x + vis.width) / passoX);
+        int lin0 = Math.max(0, (vis.y - espaco) / passoY);
+        int lin1 = Math.min(linhas - 1, (vis.y + vis.height) / passoY);
+        for (int lin = lin0; lin <= lin1; lin++) {
+            for (int col = col0; col <= col1; col++) {
+                int i = lin * colunas + col;
+                if (i < offsets.length) desenharCelula(g, i);
+            }
+        }
+    }
+
+    private void desenharSujas(Graphics2D g, Rectangle vis) {
+        for (int w = 0; w < sujas.length; w++) {
+            long bits = sujas[w];
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (retangulo(i).intersects(vis)) desenharCelula(g, i);
+            }
+        }
+    }
+
+    private void desenharCelula(Graphics2D g, int i) {
+        int x = espaco + (i % colunas) * (largura + espaco);
+        int y = espaco + (i / colunas) * (altura + espaco);
+
+        Estado estado = ESTADOS[estados[i]];
+        g.setColor(switch (estado) {
+            case OK -> FUNDO_OK;
+            case ERRO -> FUNDO_ERRO;
+            default -> FUNDO_VAZIO;
+        });
+        g.fillRect(x, y, largura, altura);
+        g.setColor(i == selecionada ? SELECAO : BORDA);
+        g.drawRect(x, y, largura - 1, altura - 1);
+        if (i == selecionada) g.drawRect(x + 1, y + 1, largura - 3, altura - 3);
+
+        if (altura < ALTURA_MIN_TEXTO) {
+            return; // zoom distante: só a cor
+        }
+
+        int margem = Math.max(2, (int) Math.round(5 * zoom));
+        Graphics2D gc = (Graphics2D) g.create(x + 1, y + 1, largura - 2, altura - 2);
+        try {
+            int topo = 0;
+            if (altura >= ALTURA_MIN_ROTULO) {
+                gc.setFont(fonteRotulo);
+                gc.setColor(ROTULO);
+                FontMetrics fm = gc.getFontMetrics();
+                gc.drawString(prefixo() + offsets[i], margem, margem + fm.getAscent() - 1);
+                topo = margem + fm.getHeight() - 2;
+            }
+
+            String texto = texto(i);
+            gc.setFont(fonteValor);
+            gc.setColor(TEXTO);
+            FontMetrics fm = gc.getFontMetrics();
+            int tx = Math.max(margem, (largura - 2 - fm.stringWidth(texto)) / 2);
+            int ty = topo + (altura - 2 - topo - fm.getHeight()) / 2 + fm.getAscent();
+            gc.drawString(texto, tx, ty);
+        } finally {
+            gc.dispose();
+        }
+    }
+
+    private String texto(int i) {
+        String t = textos[i];
+        if (t == null) {
+            t = switch (ESTADOS[estados[i]]) {
+                case VAZIO -> "—";
+                case AGUARDANDO -> "…";
+                case ERRO -> "ERR";
+                case OK -> formatar(valores[i]);
+            };
+            textos[i] = t;
+        }
+        return t;
+    }
+
+    private String formatar(double v) {
+        return switch (tipo) {
+            case "bit" -> v != 0 ? "true" : "false";
+            case "float" -> String.format("%.3f", v);
+            default -> String.valueOf((long) v);
+        };
+    }
+
+    private String prefixo() {
+        return switch (tipo) {
+            case "bit" -> "DBX";
+            case "byte" -> "DBB";
+            case "int" -> "DBW";
+            case "float" -> "DBD";
+            default -> "DB?";
+        };
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int i = celulaEm(e.getPoint());
+        return i < 0 ? null : "Offset " + offsets[i] + "  (" + prefixo() + offsets[i] + "): " + texto(i);
+    }
+
+    // ------------------------------- Geometria e zoom -------------------------------
+    private Rectangle retangulo(int i) {
+        return new Rectangle(espaco + (i % colunas) * (largura + espaco),
+                espaco + (i / colunas) * (altura + espaco), largura, altura);
+    }
+
+    private int celulaEm(Point p) {
+        int col = (p.x - espaco) / (largura + espaco);
+        int lin = (p.y - espaco) / (altura + espaco);
+        if (p.x < espaco || p.y < espaco || col >= colunas || lin >= linhas) return -1;
+        int i = lin * colunas + col;
+        return i < offsets.length && retangulo(i).contains(p) ? i : -1;
+    }
+
+    private void aplicarZoom(double z) {
+        zoom = Math.max(ZOOM_MINIMO, Math.min(ZOOM_MAXIMO, z));
+        largura = Math.max(4, (int) Math.round(LARGURA_BASE * zoom));
+        altura = Math.max(4, (int) Math.round(ALTURA_BASE * zoom));
+        espaco = Math.max(1, (int) Math.round(ESPACO * zoom));
+        fonteValor = new Font("Consolas", Font.BOLD, Math.max(8, (int) Math.round(14 * zoom)));
+        fonteRotulo = new Font("Segoe UI", Font.PLAIN, Math.max(7, (int) Math.round(11 * zoom)));
+        revalidate();
+        invalidarCache();
+    }
+
+    // Zoom mantendo sob o ponto p (coordenadas do componente) o mesmo conteúdo
+    private void zoomEm(double novoZoom, Point p) {
+        double antes = zoom;
+        aplicarZoom(novoZoom);
+        if (zoom == antes || !(getParent() instanceof JViewport vp)) return;
+
+        double razao = zoom / antes;
+        Point pos = vp.getViewPosition();
+        int x = (int) Math.round(p.x * razao) - (p.x - pos.x);
+        int y = (int) Math.round(p.y * razao) - (p.y - pos.y);
+        Dimension tam = getPreferredSize();
+        Dimension ext = vp.getExtentSize();
+        vp.setViewSize(tam);
+        vp.setViewPosition(new Point(
+                Math.max(0, Math.min(x, tam.width - ext.width)),
+                Math.max(0, Math.min(y, tam.height - ext.height))));
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(espaco + colunas * (largura + espaco), espaco + linhas * (altura + espaco));
+    }
+
+    // Envolve a grade num JScrollPane (rolagem só quando não couber)
+    public JScrollPane comRolagem() {
+        JScrollPane sp = new JScrollPane(this);
+        sp.setBorder(null);
+        sp.setOpaque(false);
+        sp.getViewport().setOpaque(false);
+        return sp;
+    }
+
+    // ------------------------------- Scrollable -------------------------------
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visivel, int orientacao, int direcao) {
+        return orientacao == SwingConstants.VERTICAL ? altura + espaco : largura + espaco;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visivel, int orientacao, int direcao) {
+        return orientacao == SwingConstants.VERTICAL ? visivel.height : visivel.width;
+    }
+
+    // Grade menor que a área: ocupa toda a largura/altura (sem barras)
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport vp && vp.getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport vp && vp.getHeight() > getPreferredSize().height;
+    }
+}
@@ -0,0 +1,467 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Histórico append-only dos valores lidos, em segmentos mapeados em memória.
+ *
+ * Cada amostra é um registro de tamanho fixo (tag, timestamp, valor primitivo)
+ * gravado direto no MappedByteBuffer do segmento atual: append() não faz
+ * syscall nem aloca. O force() para o disco e a criação do próximo segmento
+ * rodam num thread de fundo, então o loop de polling nunca espera por I/O.
+ *
+ * Layout do registro (24 bytes, big-endian):
+ *   0  timestamp (long, ms)
+ *   8  valor (long: inteiro, bits do float ou 0/1)
+ *   16 id da tag (int)
+ *   20 tipo (S7DataType.ordinal), marca 0xA5, checksum (short)
+ *
+ * A marca e o checksum são gravados por último, numa única escrita: depois de
+ * uma queda, a recuperação percorre o último segmento e para no primeiro
+ * registro inválido, descartando o que vier depois.
+ *
+ * Os nomes das tags ficam em tags.csv (id;nome) no mesmo diretório.
+ */
+public class Historian implements Closeable {
+
+    public static final int TAMANHO_REGISTRO = 24;
+    static final int TAMANHO_CABECALHO = 64;
+
+    private static final int MAGIC = 0x53374849; // "S7HI"
+    private static final short VERSAO = 1;
+    private static final int MARCA = 0xA5;
+
+    // Cabeçalho: magic, versão, tamanho do registro, número, capacidade, criação, registros (ao fechar)
+    private static final int POS_REGISTROS = 24;
+
+    private static final String CATALOGO = "tags.csv";
+
+    private final Path dir;
+    private final int registrosPorSegmento;
+    private final Map<String, Integer> catalogo = new HashMap<>();
+    private final ScheduledExecutorService fundo;
+
+    // Segmento em gravação: acessado só sob o lock do historian
+    private Segmento atual;
+    private int registros;
+    private long totalGravados;
+
+    // Próximo segmento, criado antecipadamente pelo thread de fundo (único que cria segmentos)
+    private Future<Segmento> reserva;
+    private boolean fechado;
+
+    /**
+     * Amostra lida do histórico. bits segue o layout do registro: use
+     * valor(tipo, bits) para obter o número.
+     */
+    public interface Visitor {
+        void amostra(int tagId, long timestampMillis, S7DataType tipo, long bits);
+    }
+
+    public Historian(Path dir) throws IOException {
+        this(dir, 1 << 20, 1000);
+    }
+
+    /**
+     * @param registrosPorSegmento capacidade de cada arquivo (24 MB com o padrão de 1M registros)
+     * @param flushMs              intervalo do force() em segundo plano
+     */
+    public Historian(Path dir, int registrosPorSegmento, long flushMs) throws IOException {
+        if (registrosPorSegmento <= 0) {
+            throw new IllegalArgumentException("O segmento deve ter pelo menos um registro.");
+        }
+        this.dir = dir;
+        this.registrosPorSegmento = registrosPorSegmento;
+        Files.createDirectories(dir);
+        carregarCatalogo();
+        recuperar();
+
+        fundo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "historian-" + dir.getFileName());
+            t.setDaemon(true);
+            return t;
+        });
+        synchronized (this) {
+            prepararReserva();
+        }
+        fundo.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Path getDiretorio() {
+        return dir;
+    }
+
+    public synchronized long getTotalGravados() {
+        return totalGravados;
+    }
+
+    // ------------------------------- Catálogo de tags -------------------------------
+    /**
+     * Id persistente de uma tag pelo nome; tags novas são acrescentadas ao
+     * tags.csv. Chamar na configuração, não no ciclo de polling.
+     */
+    public synchronized int tagId(String nome) throws IOException {
+        Integer id = catalogo.get(nome);
+        if (id != null) {
+            return id;
+        }
+        if (nome.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Nome de tag inválido: " + nome);
+        }
+        int novo = catalogo.size() + 1;
+        Files.writeString(dir.resolve(CATALOGO), novo + ";" + nome + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        catalogo.put(nome, novo);
+        return novo;
+    }
+
+    public synchronized Map<Integer, String> getTags() {
+        Map<Integer, String> porId = new HashMap<>();
+        catalogo.forEach((nome, id) -> porId.put(id, nome));
+        return porId;
+    }
+
+    private void carregarCatalogo() throws IOException {
+        Path arquivo = dir.resolve(CATALOGO);
+        if (!Files.exists(arquivo)) {
+            return;
+        }
+        for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+            int sep = linha.indexOf(';');
+            if (sep > 0) {
+                catalogo.put(linha.substring(sep + 1), Integer.parseInt(linha.substring(0, sep)));
+            }
+        }
+    }
+
+    // ------------------------------- Gravação -------------------------------
+    public void appendInt(int tagId, long timestampMillis, int valor) {
+        append(tagId, timestampMillis, S7DataType.INTEGER, valor);
+    }
+
+    public void appendFloat(int tagId, long timestampMillis, float valor) {
+        append(tagId, timestampMillis, S7DataType.FLOAT, Float.floatToRawIntBits(valor));
+    }
+
+    public void appendBoolean(int tagId, long timestampMillis, boolean valor) {
+        append(tagId, timestampMillis, S7DataType.BOOLEAN, valor ? 1 : 0);
+    }
+
+    // Caminho quente: só escritas na memória mapeada (e, a cada segmento, uma troca de buffer)
+    public synchronized void append(int tagId, long timestampMillis, S7DataType tipo, long bits) {
+        if (fechado) {
+            throw new IllegalStateException("Histórico fechado.");
+        }
+        if (registros == registrosPorSegmento) {
+            trocarSegmento();
+        }
+
+        MappedByteBuffer b = atual.buffer;
+        int pos = TAMANHO_CABECALHO + registros * TAMANHO_REGISTRO;
+        b.putLong(pos, timestampMillis);
+        b.putLong(pos + 8, bits);
+        b.putInt(pos + 16, tagId);
+        b.putInt(pos + 20, selo(tagId, timestampMillis, tipo.ordinal(), bits));
+        registros++;
+        totalGravados++;
+    }
+
+    private void trocarSegmento() {
+        Segmento cheio = atual;
+        cheio.buffer.putInt(POS_REGISTROS, registros);
+
+        // Normalmente já está pronto; só espera se a rajada foi mais rápida que o thread de fundo
+        atual = aguardarReserva();
+        registros = 0;
+        prepararReserva();
+        fundo.execute(cheio::fechar);
+    }
+
+    private void prepararReserva() {
+        int numero = atual.numero + 1;
+        reserva = fundo.submit(() -> Segmento.criar(dir, numero, registrosPorSegmento));
+    }
+
+    private Segmento aguardarReserva() {
+        boolean interrompido = false;
+        try {
+            while (true) {
+                try {
+                    return reserva.get();
+                } catch (InterruptedException e) {
+                    interrompido = true;
+                } catch (ExecutionException e) {
+                    prepararReserva(); // tenta de novo na próxima troca
+                    throw new IllegalStateException("Não foi possível criar o segmento " + (atual.numero + 1) + ": "
+                            + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            if (interrompido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Leva ao disco o que já foi gravado no segmento atual
+    public void flush() {
+        Segmento s;
+        synchronized (this) {
+            if (fechado) return;
+            s = atual;
+        }
+        s.buffer.force();
+    }
+
+    @Override
+    public void close() {
+        Segmento s;
+        Segmento r;
+        synchronized (this) {
+            if (fechado) return;
+            fechado = true;
+            s = atual;
+            try {
+                r = aguardarReserva();
+            } catch (IllegalStateException e) {
+                r = null;
+            }
+        }
+        fundo.shutdown();
+        try {
+            fundo.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        s.fechar();
+        if (r != null) {
+            r.descartar();
+        }
+    }
+
+    // ------------------------------- Recuperação -------------------------------
+    /**
+     * Continua no último segmento: conta os registros válidos, zera o que vier
+     * depois do primeiro inválido (registro pela metade numa queda) e segue
+     * gravando a partir dali. Reservas vazias deixadas no fim (o thread de fundo
+     * cria o próximo segmento antes de precisar) são apagadas.
+     */
+    private void recuperar() throws IOException {
+        List<Path> segmentos = listarSegmentos(dir);
+        while (segmentos.size() > 1 && semRegistros(segmentos.get(segmentos.size() - 1))) {
+            Files.delete(segmentos.remove(segmentos.size() - 1));
+        }
+        if (segmentos.isEmpty()) {
+            atual = Segmento.criar(dir, 1, registrosPorSegmento);
+            return;
+        }
+
+        Path ultimo = segmentos.get(segmentos.size() - 1);
+        int numero = numeroDoSegmento(ultimo);
+        if (semRegistros(ultimo)) {
+            // Único segmento, vazio ou criado pela metade: recomeça com o tamanho configurado
+            Files.delete(ultimo);
+            atual = Segmento.criar(dir, numero, registrosPorSegmento);
+            return;
+        }
+
+        Segmento s = Segmento.abrir(ultimo, numero);
+        if (s.capacidade != registrosPorSegmento) {
+            // Tamanho de segmento mudou: continua num arquivo novo
+            s.fechar();
+            atual = Segmento.criar(dir, numero + 1, registrosPorSegmento);
+            return;
+        }
+
+        int validos = contarValidos(s.buffer, s.capacidade);
+        int fim = TAMANHO_CABECALHO + s.capacidade * TAMANHO_REGISTRO;
+        for (int pos = TAMANHO_CABECALHO + validos * TAMANHO_REGISTRO; pos < fim; pos += 8) {
+            if (s.buffer.getLong(pos) != 0) {
+                s.buffer.putLong(pos, 0);
+            }
+        }
+        s.buffer.putInt(POS_REGISTROS, 0);
+        s.buffer.force();
+
+        atual = s;
+        registros = validos;
+        totalGravados = validos;
+    }
+
+    // Cabeçalho incompleto ou nenhum registro válido
+    private static boolean semRegistros(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (canal.size() < TAMANHO_CABECALHO + TAMANHO_REGISTRO) {
+                return true;
+            }
+            ByteBuffer b = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAMANHO_CABECALHO + TAMANHO_REGISTRO);
+            return b.getInt(0) != MAGIC || !valido(b, TAMANHO_CABECALHO);
+        }
+    }
+
+    static int contarValidos(ByteBuffer b, int capacidade) {
+        int n = 0;
+        while (n < capacidade && valido(b, TAMANHO_CABECALHO + n * TAMANHO_REGISTRO)) {
+            n++;
+        }
+        return n;
+    }
+
+    // ------------------------------- Leitura -------------------------------
+    // Todas as amostras, em ordem de gravação
+    public void replay(Visitor visitor) throws IOException {
+        replay(0, Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Amostras de uma tag (0 = todas) com timestamp em [deMillis, ateMillis].
+     * Pode ser chamado com o historian gravando: lê até o último registro completo.
+     */
+    public void replay(int tagId, long deMillis, long ateMillis, Visitor visitor) throws IOException {
+        flush();
+        S7DataType[] tipos = S7DataType.values();
+        for (Path arquivo : listarSegmentos(dir)) {
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                ByteBuffer b = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+                if (b.limit() < TAMANHO_CABECALHO || b.getInt(0) != MAGIC) {
+                    continue;
+                }
+                int capacidade = (b.limit() - TAMANHO_CABECALHO) / TAMANHO_REGISTRO;
+                int fechados = b.getInt(POS_REGISTROS);
+                int n = fechados > 0 ? Math.min(fechados, capacidade) : contarValidos(b, capacidade);
+
+                for (int i = 0; i < n; i++) {
+                    int pos = TAMANHO_CABECALHO + i * TAMANHO_REGISTRO;
+                    long ts = b.getLong(pos);
+                    int id = b.getInt(pos + 16);
+                    if ((tagId == 0 || id == tagId) && ts >= deMillis && ts <= ateMillis) {
+                        visitor.amostra(id, ts, tipos[b.get(pos + 20)], b.getLong(pos + 8));
+                    }
+                }
+            }
+        }
+    }
+
+    // Valor numérico de uma amostra conforme o tipo gravado
+    public static double valor(S7DataType tipo, long bits) {
+        return tipo == S7DataType.FLOAT ? Float.intBitsToFloat((int) bits) : bits;
+    }
+
+    // ------------------------------- Formato -------------------------------
+    private static int selo(int tagId, long ts, int tipo, long bits) {
+        return (tipo << 24) | (MARCA << 16) | checksum(tagId, ts, tipo, bits);
+    }
+
+    private static int checksum(int tagId, long ts, int tipo, long bits) {
+        long h = ts * 0x9E3779B97F4A7C15L;
+        h = (h ^ bits) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ (((long) tagId << 8) | tipo)) * 0x165667B19E3779F9L;
+        return (int) ((h >>> 48) ^ (h >>> 16)) & 0xFFFF;
+    }
+
+    private static boolean valido(ByteBuffer b, int pos) {
+        int selo = b.getInt(pos + 20);
+        int tipo = selo >>> 24;
+        if (((selo >>> 16) & 0xFF) != MARCA || tipo >= S7DataType.values().length) {
+            return false;
+        }
+        return (selo & 0xFFFF) == checksum(b.getInt(pos + 16), b.getLong(pos), tipo, b.getLong(pos + 8));
+    }
+
+    private static List<Path> listarSegmentos(Path dir) throws IOException {
+        List<Path> segmentos = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(dir)) {
+            arquivos.filter(p -> p.getFileName().toString().matches("seg-\\d{6}\\.hist"))
+                    .sorted()
+                    .forEach(segmentos::add);
+        }
+        return segmentos;
+    }
+
+    private static int numeroDoSegmento(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        return Integer.parseInt(nome.substring(4, 10));
+    }
+
+    private static final class Segmento {
+        final int numero;
+        final int capacidade;
+        final Path arquivo;
+        final FileChannel canal;
+        final MappedByteBuffer buffer;
+
+        private Segmento(int numero, Path arquivo, FileChannel canal, MappedByteBuffer buffer) {
+            this.numero = numero;
+            this.arquivo = arquivo;
+            this.canal = canal;
+            this.buffer = buffer;
+            this.capacidade = (buffer.limit() - TAMANHO_CABECALHO) / TAMANHO_REGISTRO;
+        }
+
+        static Segmento criar(Path dir, int numero, int capacidade) throws IOException {
+            Path arquivo = dir.resolve(String.format("seg-%06d.hist", numero));
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long tamanho = TAMANHO_CABECALHO + (long) capacidade * TAMANHO_REGISTRO;
+            MappedByteBuffer b;
+            try {
+                b = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+            } catch (IOException e) {
+                canal.close();
+                Files.deleteIfExists(arquivo);
+                throw e;
+            }
+
+            b.putInt(0, MAGIC);
+            b.putShort(4, VERSAO);
+            b.putShort(6, (short) TAMANHO_REGISTRO);
+            b.putInt(8, numero);
+            b.putInt(12, capacidade);
+            b.putLong(16, System.currentTimeMillis());
+            b.putInt(POS_REGISTROS, 0);
+            b.force();
+            return new Segmento(numero, arquivo, canal, b);
+        }
+
+        static Segmento abrir(Path arquivo, int numero) throws IOException {
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer b = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size());
+            if (b.limit() < TAMANHO_CABECALHO || b.getInt(0) != MAGIC || b.getShort(6) != TAMANHO_REGISTRO) {
+                canal.close();
+                throw new IOException("Segmento de histórico inválido: " + arquivo);
+            }
+            return new Segmento(numero, arquivo, canal, b);
+        }
+
+        void fechar() {
+            buffer.force();
+            try {
+                canal.close();
+            } catch (IOException ignored) {}
+        }
+
+        // Reserva não usada: apaga para não deixar um segmento vazio no meio do histórico
+        void descartar() {
+            try {
+                canal.close();
+                Files.deleteIfExists(arquivo);
+            } catch (IOException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Grava no Historian todas as amostras de um grupo de polling.
+ *
+ * Os ids das tags são resolvidos na criação (ip:porta/endereço), então o
+ * onResult só converte os bytes para o valor primitivo e faz o append: sem
+ * boxing, sem String e sem I/O no thread da sessão. Opcionalmente repassa o
+ * resultado a outro listener (ex.: o da tela).
+ *
+ * Uso:
+ *   PollListener l = new HistorianSink(historian, grupo, telaListener);
+ *   agendador.register(grupo, l);
+ */
+public class HistorianSink implements PollListener {
+
+    private final Historian historian;
+    private final PollListener proximo;
+    private final int[] ids;
+    private final S7DataType[] tipos;
+
+    public HistorianSink(Historian historian, PollGroup grupo) throws IOException {
+        this(historian, grupo, null);
+    }
+
+    public HistorianSink(Historian historian, PollGroup grupo, PollListener proximo) throws IOException {
+        this.historian = historian;
+        this.proximo = proximo;
+
+        List<S7ReadItem> tags = grupo.tags();
+        ids = new int[tags.size()];
+        tipos = new S7DataType[tags.size()];
+        for (int i = 0; i < ids.length; i++) {
+            S7ReadItem item = tags.get(i);
+            tipos[i] = S7DataType.of(item.type());
+            // String e block não cabem num registro de tamanho fixo
+            ids[i] = tipos[i].getTamanho() > 0 ? historian.tagId(nomeTag(grupo, item)) : -1;
+        }
+    }
+
+    /**
+     * Sink do PollDaemon: um Historian em historian.dir (obrigatório), com
+     * historian.registros por segmento e force() a cada historian.flushMs.
+     */
+    public static PollSink sink(Properties config) throws Exception {
+        String dir = config.getProperty("historian.dir", "").trim();
+        if (dir.isEmpty()) {
+            throw new Exception("Sink historian sem historian.dir configurado.");
+        }
+        Historian historian = new Historian(Path.of(dir),
+                Integer.parseInt(config.getProperty("historian.registros", "1048576").trim()),
+                Long.parseLong(config.getProperty("historian.flushMs", "1000").trim()));
+
+        return new PollSink() {
+            @Override
+            public PollListener listener(PollGroup grupo) throws Exception {
+                return new HistorianSink(historian, grupo);
+            }
+
+            @Override
+            public void close() {
+                historian.close();
+            }
+        };
+    }
+
+    public static String nomeTag(PollGroup grupo, S7ReadItem item) {
+        String endereco = item.isBit()
+                ? "DB" + item.db() + ".DBX" + item.offset() + "." + item.bit()
+                : "DB" + item.db() + "." + item.offset();
+        return grupo.ip() + ":" + grupo.port() + "/" + endereco + " " + item.type();
+    }
+
+    @Override
+    public void onResult(PollResult resultado) {
+        List<S7ReadResult> valores = resultado.valores();
+        long ts = resultado.timestampMillis();
+        for (int i = 0; i < ids.length && i < valores.size(); i++) {
+            S7ReadResult r = valores.get(i);
+            byte[] d = r.data();
+            if (ids[i] < 0 || !r.isOk() || d == null || d.length < tipos[i].getTamanho()) {
+                continue;
+            }
+            long bits = switch (tipos[i]) {
+                case BOOLEAN -> d[0] != 0 ? 1 : 0;
+                case BYTE -> d[0] & 0xFF;
+                case INTEGER -> S7ProtocolClient.getInt16(d, 0);
+                default -> ((d[0] & 0xFF) << 24) | ((d[1] & 0xFF) << 16) | ((d[2] & 0xFF) << 8) | (d[3] & 0xFF);
+            };
+            historian.append(ids[i], ts, tipos[i], bits);
+        }
+
+        if (proximo != null) {
+            proximo.onResult(resultado);
+        }
+    }
+
+    @Override
+    public void onStatus(PollGroup grupo, Status status, Exception erro) {
+        if (proximo != null) {
+            proximo.onStatus(grupo, status, erro);
+        }
+    }
+
+    @Override
+    public void onOverrun(PollGroup grupo, int ciclosPerdidos, long duracaoNanos) {
+        if (proximo != null) {
+            proximo.onOverrun(grupo, ciclosPerdidos, duracaoNanos);
+        }
+    }
+
+    @Override
+    public void onRateChange(PollGroup grupo, long periodoEfetivoMs) {
+        if (proximo != null) {
+            proximo.onRateChange(grupo, periodoEfetivoMs);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histograma de latência sem locks (valores em microssegundos).
+ *
+ * Buckets log-lineares: 8 sub-buckets por potência de 2, então o erro de
+ * cada percentil fica abaixo de 12,5%. record() é só um incremento atômico;
+ * os percentis são calculados na leitura (JMX), fora do caminho quente.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB = 8;
+    private static final int SUB_BITS = 3;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long micros) {
+        long v = Math.max(0, micros);
+        buckets.incrementAndGet(indice(v));
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // Limite superior do bucket que contém o percentil p (0..100)
+    public long percentile(double p) {
+        long[] copia = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = buckets.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long alvo = Math.max(1, (long) Math.ceil(total * p / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < copia.length; i++) {
+            acumulado += copia[i];
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        max.reset();
+    }
+
+    static int indice(long v) {
+        if (v < SUB) {
+            return (int) v;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+        return (exp - SUB_BITS + 1) * SUB + sub;
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUB) {
+            return indice;
+        }
+        int exp = indice / SUB + SUB_BITS - 1;
+        int sub = indice % SUB;
+        long largura = 1L << (exp - SUB_BITS);
+        return ((SUB + sub) * largura) + largura - 1;
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Sink de log em texto: uma linha por tag que mudou (ou por amostra, com
+ * log.todas=true), além de status, atrasos e mudanças de período.
+ *
+ *   2026-10-17T08:00:00.120Z esteira DB6.DBW10=42
+ *
+ * Configuração: log.arquivo (padrão: saída padrão), log.todas, log.deadband.
+ */
+public class LogSink implements PollSink {
+
+    private final PrintWriter saida;
+    private final boolean fecharSaida;
+    private final boolean todas;
+    private final Deadband banda;
+
+    public LogSink(Properties config) throws Exception {
+        String arquivo = config.getProperty("log.arquivo", "").trim();
+        if (arquivo.isEmpty()) {
+            saida = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), false);
+            fecharSaida = false;
+        } else {
+            saida = new PrintWriter(new OutputStreamWriter(new FileOutputStream(arquivo, true), StandardCharsets.UTF_8), false);
+            fecharSaida = true;
+        }
+        todas = Boolean.parseBoolean(config.getProperty("log.todas", "false"));
+        double db = Double.parseDouble(config.getProperty("log.deadband", "0"));
+        banda = db > 0 ? Deadband.absoluta(db) : Deadband.NENHUMA;
+    }
+
+    @Override
+    public PollListener listener(PollGroup grupo) {
+        List<S7ReadItem> tags = grupo.tags();
+        String[] nomes = new String[tags.size()];
+        for (int i = 0; i < nomes.length; i++) {
+            nomes[i] = tags.get(i).endereco();
+        }
+
+        ChangeListener mudancas = new ChangeListener() {
+            @Override
+            public void onChanges(PollGroup g, List<TagChange> lista) {
+                StringBuilder sb = new StringBuilder(64 * lista.size());
+                for (TagChange c : lista) {
+                    sb.append(Instant.ofEpochMilli(c.timestampMillis())).append(' ').append(g.nome()).append(' ')
+                            .append(nomes[c.indice()]).append('=').append(formatar(c.resultado())).append('\n');
+                }
+                escrever(sb);
+            }
+
+            @Override
+            public void onStatus(PollGroup g, PollListener.Status status, Exception erro) {
+                escrever(new StringBuilder().append(agora()).append(' ').append(g.nome()).append(" [")
+                        .append(status).append(']').append(erro == null ? "" : " " + erro.getMessage()).append('\n'));
+            }
+
+            @Override
+            public void onOverrun(PollGroup g, int ciclosPerdidos, long duracaoNanos) {
+                escrever(new StringBuilder().append(agora()).append(' ').append(g.nome()).append(" [ATRASO] ")
+                        .append(duracaoNanos / 1_000_000).append(" ms, ").append(ciclosPerdidos)
+                        .append(" ciclo(s) pulado(s)\n"));
+            }
+
+            @Override
+            public void onRateChange(PollGroup g, long periodoEfetivoMs) {
+                escrever(new StringBuilder().append(agora()).append(' ').append(g.nome()).append(" [PERIODO] ")
+                        .append(periodoEfetivoMs).append(" ms\n"));
+            }
+        };
+
+        // log.todas: reset a cada ciclo faz o detector publicar todas as posições
+        ChangeDetector detector = new ChangeDetector(tags, banda);
+        PollListener base = detector.listener(mudancas);
+        if (!todas) {
+            return base;
+        }
+        return new PollListener() {
+            @Override
+            public void onResult(PollResult resultado) {
+                detector.reset();
+                base.onResult(resultado);
+            }
+
+            @Override
+            public void onStatus(PollGroup g, Status status, Exception erro) {
+                base.onStatus(g, status, erro);
+            }
+
+            @Override
+            public void onOverrun(PollGroup g, int ciclosPerdidos, long duracaoNanos) {
+                base.onOverrun(g, ciclosPerdidos, duracaoNanos);
+            }
+
+            @Override
+            public void onRateChange(PollGroup g, long periodoEfetivoMs) {
+                base.onRateChange(g, periodoEfetivoMs);
+            }
+        };
+    }
+
+    private static String formatar(S7ReadResult r) {
+        if (!r.isOk()) {
+            return "ERR(" + r.getErro() + ")";
+        }
+        try {
+            Object v = r.getValue();
+            return v instanceof Byte b ? String.valueOf(b & 0xFF) : String.valueOf(v);
+        } catch (Exception e) {
+            return "ERR(" + e.getMessage() + ")";
+        }
+    }
+
+    // Vários grupos (threads) escrevendo: uma linha nunca se mistura com outra
+    private synchronized void escrever(CharSequence linhas) {
+        saida.append(linhas);
+        saida.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        saida.flush();
+        if (fecharSaida) {
+            saida.close();
+        }
+    }
+
+    private static Instant agora() {
+        return Instant.ofEpochMilli(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,71 @@
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sink de métricas: registra no JMX os CLPs dos grupos (PlcMetrics) e, a cada
+ * metrics.intervalo segundos (padrão 60; 0 desliga), imprime um resumo por CLP.
+ * Não olha os valores lidos: o custo por ciclo é zero.
+ */
+public class MetricsSink implements PollSink {
+
+    private final Map<String, PlcMetrics> plcs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    public MetricsSink(Properties config) {
+        long intervalo = Long.parseLong(config.getProperty("metrics.intervalo", "60").trim());
+        if (intervalo <= 0) {
+            timer = null;
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-sink");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::resumo, intervalo, intervalo, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public PollListener listener(PollGroup grupo) {
+        plcs.computeIfAbsent(grupo.ip() + ":" + grupo.port(), k -> PlcMetrics.forPlc(grupo.ip(), grupo.port()));
+        return resultado -> {
+        };
+    }
+
+    private void resumo() {
+        StringBuilder sb = new StringBuilder();
+        for (PlcMetrics m : plcs.values()) {
+            sb.append(agora()).append(" [METRICAS] ").append(m.getPlc())
+                    .append(" req=").append(m.getRequests())
+                    .append(" in=").append(m.getBytesIn())
+                    .append(" out=").append(m.getBytesOut())
+                    .append(" p50=").append(m.getLatencyP50Micros()).append("us")
+                    .append(" p99=").append(m.getLatencyP99Micros()).append("us")
+                    .append(" max=").append(m.getLatencyMaxMicros()).append("us")
+                    .append(" timeouts=").append(m.getTimeouts())
+                    .append(" reconexoes=").append(m.getReconnects())
+                    .append(" ciclos=").append(m.getPollCycles())
+                    .append(" atrasos=").append(m.getCycleOverruns())
+                    .append('\n');
+        }
+        System.out.print(sb);
+        System.out.flush();
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+            resumo();
+        }
+    }
+
+    private static Instant agora() {
+        return Instant.ofEpochMilli(System.currentTimeMillis());
+    }
+}
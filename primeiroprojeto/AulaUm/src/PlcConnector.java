@@ -1,29 +1,85 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
 public class PlcConnector {
 
     private String ipAddress;
     private int port;
+    private int rack;
+    private int slot;
     S7ProtocolClient client;
     boolean connected = false;
 
+    // Modo pipeline: vários jobs em voo na mesma conexão (até max AmQ called)
+    private boolean pipelined = false;
+    private S7AsyncSession pipeline;
+
+    // Transporte NIO: sem socket próprio, a sessão roda nos threads de I/O do transporte
+    private S7NioTransport transporte;
+
+    // API assíncrona sem pipeline: as operações rodam em ordem num único thread da conexão
+    private ExecutorService sequencial;
+
+    // Sem pipeline o socket e o buffer response do client são únicos: uma requisição por vez,
+    // venha ela de uma chamada síncrona ou do thread assíncrono
+    private final Object io = new Object();
+
     // Construtor para inicializar o cliente S7ProtocolClient com o IP e porta do CLP
     public PlcConnector(String ipAddress, int port) {
+        this(ipAddress, port, 0, 1);
+    }
+
+    public PlcConnector(String ipAddress, int port, int rack, int slot) {
         this.ipAddress = ipAddress;
         this.port = port;
+        this.rack = rack;
+        this.slot = slot;
 
-        client = new S7ProtocolClient(this.ipAddress, this.port);
+        client = new S7ProtocolClient(this.ipAddress, this.port, rack, slot);
 
     }
 
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public boolean isConnected() {
+        if (transporte != null) {
+            S7AsyncSession p = pipeline;
+            return connected && p != null && p.isAberta();
+        }
+        return connected && client.isConnected();
+    }
+
     public void connect() throws Exception {
         if (connected) {
             return;
         }
 
         try {
-            if (client.connect()) {
+            if (transporte != null) {
+                S7NioSession sessao = aguardar(transporte.open(ipAddress, port, rack, slot));
+                client.setNegotiated(sessao.getPduLength(), sessao.getMaxAmqCalling(), sessao.getMaxAmqCalled());
+                pipeline = sessao;
+                connected = true; // a sessão NIO já conta a conexão nas métricas
+            } else if (client.connect()) {
                 client.sendConnectionRequest();
                 client.sendSetupCommunication();
+                if (pipelined) {
+                    pipeline = new S7PipelinedSession(client, client.getTimeoutMs());
+                }
                 connected = true;
+                client.getMetrics().conexao();
             } else {
                 connected = false;
             }
@@ -32,9 +88,65 @@ public class PlcConnector {
         }
     }
 
+    // Contadores e latências do CLP (os mesmos publicados no JMX)
+    public PlcMetrics getMetrics() {
+        return client.getMetrics();
+    }
+
+    // Tamanho do PDU em uso na sessão (base para o planejamento de leituras)
+    public int getPduLength() {
+        return client.getPduLength();
+    }
+
+    // Maior bloco que writeBlock manda num único Write Var; acima disso vai em partes
+    public int getMaxWriteBlockSize() {
+        return client.getMaxWriteBlockSize();
+    }
+
+    public int getMaxAmqCalling() {
+        return client.getMaxAmqCalling();
+    }
+
+    public int getMaxAmqCalled() {
+        return client.getMaxAmqCalled();
+    }
+
+    // Deve ser chamado antes de connect()
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    public boolean isPipelined() {
+        return pipeline != null;
+    }
+
+    /**
+     * Usa o transporte NIO em vez do socket bloqueante do S7ProtocolClient
+     * (null volta ao socket). As operações seguem o caminho do modo pipeline.
+     * Deve ser chamado antes de connect(); o transporte pode ser compartilhado
+     * por muitos conectores e não é fechado no disconnect().
+     */
+    public void setTransport(S7NioTransport transporte) {
+        this.transporte = transporte;
+    }
+
     public void disconnect() throws Exception {
         try {
-            client.disconnect();
+            // Antes de tudo: as operações assíncronas ainda na fila falham sem tocar no socket
+            connected = false;
+            synchronized (this) {
+                if (sequencial != null) {
+                    sequencial.shutdown();
+                    sequencial = null;
+                }
+            }
+            if (pipeline != null) {
+                pipeline.close();
+                pipeline = null;
+            }
+            synchronized (io) {
+                client.disconnect(); // depois da requisição em andamento, não no meio dela
+            }
         } catch (Exception e) {
             throw new Exception("Erro ao tentar desconectar do CLP" + e.getMessage(), e);
         }
@@ -49,7 +161,7 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         } else {
 
-            String data = (String) client.sendReadRequest(db, startAdd, 0, size, "string");
+            String data = (String) lerTag(db, startAdd, 0, size, "string");
 
             return data;
         }
@@ -63,7 +175,36 @@ public class PlcConnector {
         } else {
 
             //System.out.println("SOlicitando leitura de BLOCO");
-            byte[] data = (byte[]) client.sendReadRequest(db, startAdd, 0, size, "block");
+            // Blocos maiores que o PDU negociado são lidos em partes
+            int maxChunk = client.getMaxReadBlockSize();
+            if (size <= maxChunk) {
+                return (byte[]) lerTag(db, startAdd, 0, size, "block");
+            }
+
+            byte[] data = new byte[size];
+            if (pipeline != null) {
+                // Em pipeline todas as partes são pedidas de uma vez
+                List<CompletableFuture<byte[]>> partes = new ArrayList<>();
+                for (int pos = 0; pos < size; pos += maxChunk) {
+                    int len = Math.min(maxChunk, size - pos);
+                    partes.add(pipeline.submit(S7ProtocolClient.createReadRequest(db, startAdd + pos, 0, len, "block")));
+                }
+                int pos = 0;
+                for (CompletableFuture<byte[]> parte : partes) {
+                    int len = Math.min(maxChunk, size - pos);
+                    byte[] frame = aguardar(parte);
+                    int dataPos = S7ProtocolClient.checkReadResponse(frame, frame.length, len, db, startAdd + pos);
+                    System.arraycopy(frame, dataPos, data, pos, len);
+                    pos += len;
+                }
+                return data;
+            }
+
+            for (int pos = 0; pos < size; pos += maxChunk) {
+                int len = Math.min(maxChunk, size - pos);
+                byte[] parte = (byte[]) lerTag(db, startAdd + pos, 0, len, "block");
+                System.arraycopy(parte, 0, data, pos, len);
+            }
 
             //System.out.println("Resposta de conexão recebida [readBlock]: " + S7ProtocolClient.bytesToHex(data, data.length));
             return data;
@@ -71,13 +212,67 @@ public class PlcConnector {
 
     }
 
+    /**
+     * Lê dst.remaining() bytes direto para dst (pode ser um buffer direto).
+     * No modo sequencial não aloca nada por requisição.
+     */
+    public void readBlock(int db, int startAdd, ByteBuffer dst) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        if (pipeline != null) {
+            dst.put(readBlock(db, startAdd, dst.remaining()));
+            return;
+        }
+        synchronized (io) {
+            client.readBlock(db, startAdd, dst);
+        }
+    }
+
+    // Leitura em bloco de INTs consecutivos para um array do chamador
+    public void readInts(int db, int startAdd, int[] dst) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        if (pipeline != null) {
+            byte[] data = readBlock(db, startAdd, dst.length * 2);
+            for (int i = 0; i < dst.length; i++) {
+                dst[i] = S7ProtocolClient.getInt16(data, i * 2);
+            }
+            return;
+        }
+        synchronized (io) {
+            client.readInts(db, startAdd, dst, 0, dst.length);
+        }
+    }
+
+    // Leitura em bloco de REALs consecutivos para um array do chamador
+    public void readFloats(int db, int startAdd, float[] dst) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        if (pipeline != null) {
+            byte[] data = readBlock(db, startAdd, dst.length * 4);
+            for (int i = 0; i < dst.length; i++) {
+                dst[i] = S7ProtocolClient.getFloat32(data, i * 4);
+            }
+            return;
+        }
+        synchronized (io) {
+            client.readFloats(db, startAdd, dst, 0, dst.length);
+        }
+    }
+
     public float readFloat(int db, int startAdd) throws Exception {
 
         if (!connected) {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         } else {
 
-            float data = (float) client.sendReadRequest(db, startAdd, 0, 4, "float");
+            float data = (float) lerTag(db, startAdd, 0, 4, "float");
 
             return data;
         }
@@ -89,7 +284,7 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         } else {
 
-            int data = (int) client.sendReadRequest(db, startAdd, 0, 2, "integer");
+            int data = (int) lerTag(db, startAdd, 0, 2, "integer");
 
             return data;
         }
@@ -101,57 +296,451 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         } else {
 
-            byte data = (byte) client.sendReadRequest(db, startAdd, 0, 1, "byte");
+            byte data = (byte) lerTag(db, startAdd, 0, 1, "byte");
 
             return data;
         }
     }
 
+    /**
+     * count bits a partir de DBX startAdd.0 num único Read Var (ou no mínimo
+     * de partes que o PDU permite): o bit i do resultado é DBX startAdd + i/8 . i%8.
+     */
+    public BitSet readBits(int db, int startAdd, int count) throws Exception {
+        long[] bits = new long[(count + 63) >>> 6];
+        readBits(db, startAdd, bits, count);
+        return BitSet.valueOf(bits);
+    }
+
+    // Mesma leitura, empacotada no array do chamador (sem alocação no modo sequencial)
+    public void readBits(int db, int startAdd, long[] dst, int count) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        if (pipeline != null) {
+            int bytes = (count + 7) >>> 3;
+            if (dst.length < (count + 63) >>> 6) {
+                throw new IllegalArgumentException("Destino com " + dst.length + " palavras para " + count + " bits.");
+            }
+            Arrays.fill(dst, 0, (count + 63) >>> 6, 0L);
+            S7ProtocolClient.packBits(readBlock(db, startAdd, bytes), 0, bytes, dst, 0);
+            S7ProtocolClient.clearBitsAfter(dst, count);
+            return;
+        }
+        synchronized (io) {
+            client.readBits(db, startAdd, dst, count);
+        }
+    }
+
     public boolean readBit(int db, int startAdd, int bitNumber) throws Exception {
 
         if (!connected) {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         } else {
 
-            boolean data = (boolean) client.sendReadRequest(db, startAdd, bitNumber, 1, "boolean");
+            boolean data = (boolean) lerTag(db, startAdd, bitNumber, 1, "boolean");
             //System.out.println("Valor do BIT = " + data);
             return data;
         }
     }
 
+    // Leitura em lote: vários itens por Read Var, com resultado (e erro) por item
+    public List<S7ReadResult> readMulti(List<S7ReadItem> itens) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        } else {
+
+            if (pipeline != null) {
+                return aguardar(pipeline.readMulti(itens));
+            }
+            synchronized (io) {
+                return client.sendMultiReadRequest(itens);
+            }
+        }
+    }
+
     // --------------------------------------------------------------------------------------------
     // Funções para escritas de TAGs
     // --------------------------------------------------------------------------------------------
     public boolean writeString(int db, int startAdd, int size, String str) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, size, "string", str);
+        return escreverTag(db, startAdd, 0, size, "string", str);
 
     }
 
     public boolean writeBlock(int db, int startAdd, int size, byte[] block) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, size, "block", block);
+        // Blocos maiores que o PDU negociado são escritos em partes
+        int maxChunk = client.getMaxWriteBlockSize();
+        if (size <= maxChunk) {
+            return escreverTag(db, startAdd, 0, size, "block", block);
+        }
+
+        if (pipeline != null) {
+            List<CompletableFuture<byte[]>> respostas = new ArrayList<>();
+            for (int pos = 0; pos < size; pos += maxChunk) {
+                int len = Math.min(maxChunk, size - pos);
+                byte[] parte = Arrays.copyOfRange(block, pos, pos + len);
+                respostas.add(pipeline.submit(S7ProtocolClient.createWriteRequest(db, startAdd + pos, 0, len, "block", parte)));
+            }
+            boolean ok = true;
+            for (CompletableFuture<byte[]> r : respostas) {
+                byte[] frame = aguardar(r);
+                ok &= S7ProtocolClient.writeAckOk(frame, frame.length);
+            }
+            return ok;
+        }
+
+        for (int pos = 0; pos < size; pos += maxChunk) {
+            int len = Math.min(maxChunk, size - pos);
+            byte[] parte = Arrays.copyOfRange(block, pos, pos + len);
+            if (!escreverTag(db, startAdd + pos, 0, len, "block", parte)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Escrita em lote: os itens são agrupados em tantos Write Var quantos o PDU
+     * exigir (blocos grandes são divididos) e cada item volta com o seu return code.
+     */
+    public List<S7WriteResult> writeMulti(List<S7WriteItem> itens) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        } else {
+
+            if (pipeline != null) {
+                return aguardar(pipeline.writeMulti(itens));
+            }
+            synchronized (io) {
+                return client.sendMultiWriteRequest(itens);
+            }
+        }
     }
 
     public boolean writeFloat(int db, int startAdd, float value) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, 4, "float", value);
+        return escreverTag(db, startAdd, 0, 4, "float", value);
 
     }
 
     public boolean writeInt(int db, int startAdd, int value) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, 2, "integer", value);
+        return escreverTag(db, startAdd, 0, 2, "integer", value);
     }
 
     public boolean writeByte(int db, int startAdd, byte value) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, 1, "byte", value);
+        return escreverTag(db, startAdd, 0, 1, "byte", value);
     }
 
     public boolean writeBit(int db, int startAdd, int bitNumber, boolean logic) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, bitNumber, 1, "boolean", logic);
+        return escreverTag(db, startAdd, bitNumber, 1, "boolean", logic);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Tags compiladas: retorno primitivo, sem String de tipo nem boxing
+    // --------------------------------------------------------------------------------------------
+    public int getInt(Tag tag) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.readInt(verificarConexao(tag));
+            }
+        }
+        return S7ProtocolClient.getInt16(lerTagPipeline(tag), Tag.READ_DATA_POS);
+    }
+
+    public float getFloat(Tag tag) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.readFloat(verificarConexao(tag));
+            }
+        }
+        return S7ProtocolClient.getFloat32(lerTagPipeline(tag), Tag.READ_DATA_POS);
+    }
+
+    public byte getByte(Tag tag) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.readByte(verificarConexao(tag));
+            }
+        }
+        return lerTagPipeline(tag)[Tag.READ_DATA_POS];
+    }
+
+    public boolean getBoolean(Tag tag) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.readBoolean(verificarConexao(tag));
+            }
+        }
+        return (lerTagPipeline(tag)[Tag.READ_DATA_POS] & 0x01) == 1;
+    }
+
+    public boolean writeInt(Tag tag, int value) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.writeInt(verificarConexao(tag), value);
+            }
+        }
+        return escreverTag(tag.getDb(), tag.getOffset(), 0, 2, "integer", value);
+    }
+
+    public boolean writeFloat(Tag tag, float value) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.writeFloat(verificarConexao(tag), value);
+            }
+        }
+        return escreverTag(tag.getDb(), tag.getOffset(), 0, 4, "float", value);
+    }
+
+    public boolean writeByte(Tag tag, byte value) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.writeByte(verificarConexao(tag), value);
+            }
+        }
+        return escreverTag(tag.getDb(), tag.getOffset(), 0, 1, "byte", value);
+    }
+
+    public boolean writeBoolean(Tag tag, boolean value) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.writeBoolean(verificarConexao(tag), value);
+            }
+        }
+        return escreverTag(tag.getDb(), tag.getOffset(), tag.getBit(), 1, "boolean", value);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // API assíncrona
+    // --------------------------------------------------------------------------------------------
+    /*
+     * Mesmas operações, devolvendo CompletableFuture. Em modo pipeline o job é
+     * enviado sem bloquear o chamador (com a janela de AmQ cheia espera na fila
+     * da sessão), então é possível disparar leituras em muitos CLPs e tags e
+     * juntar os resultados sem um thread parado por requisição. Sem pipeline,
+     * as operações são executadas em ordem por um thread da própria conexão;
+     * chamadas síncronas feitas ao mesmo tempo esperam a vez (uma requisição
+     * por vez no socket).
+     *
+     * Timeout: o da conexão vale sempre; o chamador pode encurtar com
+     * orTimeout(). cancel() ou orTimeout() no futuro devolvido cancelam o job:
+     * se ainda não foi enviado ele não sai; se já está em voo a resposta é
+     * descartada e a janela liberada.
+     */
+    public CompletableFuture<Integer> readIntAsync(int db, int startAdd) {
+        return lerAsync(db, startAdd, 0, 2, "integer");
+    }
+
+    public CompletableFuture<Float> readFloatAsync(int db, int startAdd) {
+        return lerAsync(db, startAdd, 0, 4, "float");
+    }
+
+    public CompletableFuture<Byte> readByteAsync(int db, int startAdd) {
+        return lerAsync(db, startAdd, 0, 1, "byte");
+    }
+
+    public CompletableFuture<Boolean> readBitAsync(int db, int startAdd, int bitNumber) {
+        return lerAsync(db, startAdd, bitNumber, 1, "boolean");
+    }
+
+    public CompletableFuture<String> readStringAsync(int db, int startAdd, int size) {
+        return lerAsync(db, startAdd, 0, size, "string");
+    }
+
+    // Blocos maiores que o PDU: todas as partes em voo de uma vez
+    public CompletableFuture<byte[]> readBlockAsync(int db, int startAdd, int size) {
+        int maxChunk = client.getMaxReadBlockSize();
+        if (pipeline == null || size <= maxChunk) {
+            return assincrono(() -> readBlock(db, startAdd, size), p -> lerAsync(db, startAdd, 0, size, "block"));
+        }
+
+        List<CompletableFuture<byte[]>> partes = new ArrayList<>();
+        for (int pos = 0; pos < size; pos += maxChunk) {
+            int len = Math.min(maxChunk, size - pos);
+            partes.add(pipeline.submit(S7ProtocolClient.createReadRequest(db, startAdd + pos, 0, len, "block")));
+        }
+        CompletableFuture<byte[]> resultado =
+                CompletableFuture.allOf(partes.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                    byte[] data = new byte[size];
+                    int pos = 0;
+                    for (CompletableFuture<byte[]> parte : partes) {
+                        int len = Math.min(maxChunk, size - pos);
+                        byte[] frame = parte.join();
+                        try {
+                            int dataPos = S7ProtocolClient.checkReadResponse(frame, frame.length, len, db, startAdd + pos);
+                            System.arraycopy(frame, dataPos, data, pos, len);
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                        pos += len;
+                    }
+                    return data;
+                });
+        S7AsyncSession.propagarFalha(resultado, partes);
+        return resultado;
+    }
+
+    // Um item com o seu return code (não falha por erro de item, só de comunicação)
+    public CompletableFuture<S7ReadResult> readAsync(S7ReadItem item) {
+        return readMultiAsync(List.of(item)).thenApply(r -> r.get(0));
+    }
+
+    public CompletableFuture<List<S7ReadResult>> readMultiAsync(List<S7ReadItem> itens) {
+        return assincrono(() -> readMulti(itens), p -> p.readMulti(itens));
+    }
+
+    public CompletableFuture<Boolean> writeIntAsync(int db, int startAdd, int value) {
+        return escreverAsync(db, startAdd, 0, 2, "integer", value);
+    }
+
+    public CompletableFuture<Boolean> writeFloatAsync(int db, int startAdd, float value) {
+        return escreverAsync(db, startAdd, 0, 4, "float", value);
+    }
+
+    public CompletableFuture<Boolean> writeByteAsync(int db, int startAdd, byte value) {
+        return escreverAsync(db, startAdd, 0, 1, "byte", value);
+    }
+
+    public CompletableFuture<Boolean> writeBitAsync(int db, int startAdd, int bitNumber, boolean logic) {
+        return escreverAsync(db, startAdd, bitNumber, 1, "boolean", logic);
+    }
+
+    public CompletableFuture<Boolean> writeStringAsync(int db, int startAdd, int size, String str) {
+        return escreverAsync(db, startAdd, 0, size, "string", str);
+    }
+
+    // Blocos maiores que o PDU vão como itens de um writeMulti (partes divididas pelo planejador)
+    public CompletableFuture<Boolean> writeBlockAsync(int db, int startAdd, int size, byte[] block) {
+        if (size <= client.getMaxWriteBlockSize()) {
+            return escreverAsync(db, startAdd, 0, size, "block", block);
+        }
+        return writeMultiAsync(List.of(S7WriteItem.block(db, startAdd, Arrays.copyOf(block, size))))
+                .thenApply(r -> r.get(0).isOk());
+    }
+
+    public CompletableFuture<List<S7WriteResult>> writeMultiAsync(List<S7WriteItem> itens) {
+        return assincrono(() -> writeMulti(itens), p -> p.writeMulti(itens));
+    }
+
+    // Operação bloqueante usada pelo executor sequencial
+    private interface Chamada<T> {
+        T executar() throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> lerAsync(int db, int startAdd, int bit, int size, String type) {
+        return assincrono(() -> (T) lerTag(db, startAdd, bit, size, type),
+                p -> derivado(p.read(db, startAdd, bit, size, type), valor -> (T) valor));
+    }
+
+    private CompletableFuture<Boolean> escreverAsync(int db, int startAdd, int bit, int size, String type, Object value) {
+        return assincrono(() -> escreverTag(db, startAdd, bit, size, type, value),
+                p -> p.write(db, startAdd, bit, size, type, value));
+    }
+
+    private <T> CompletableFuture<T> assincrono(Chamada<T> bloqueante,
+                                               Function<S7AsyncSession, CompletableFuture<T>> emPipeline) {
+        if (!connected) {
+            return CompletableFuture.failedFuture(
+                    new Exception("Conexão não estabelecida. Chame o método connect() primeiro."));
+        }
+        S7AsyncSession p = pipeline;
+        if (p != null) {
+            return emPipeline.apply(p);
+        }
+
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        try {
+            executorSequencial().execute(() -> {
+                if (resultado.isDone()) {
+                    return; // cancelado (ou expirado) antes de sair da fila
+                }
+                if (!connected) {
+                    resultado.completeExceptionally(new Exception("Conexão encerrada."));
+                    return;
+                }
+                try {
+                    resultado.complete(bloqueante.executar());
+                } catch (Exception e) {
+                    resultado.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            resultado.completeExceptionally(new Exception("Conexão encerrada.", e));
+        }
+        return resultado;
+    }
+
+    private synchronized ExecutorService executorSequencial() {
+        if (sequencial == null) {
+            sequencial = Executors.newSingleThreadExecutor(r -> PollScheduler.novaThread("plc-async-" + ipAddress, r));
+        }
+        return sequencial;
+    }
+
+    // thenApply que repassa cancelamento/timeout do resultado ao job de origem
+    private static <A, B> CompletableFuture<B> derivado(CompletableFuture<A> origem, Function<A, B> conversao) {
+        CompletableFuture<B> resultado = origem.thenApply(conversao);
+        S7AsyncSession.propagarFalha(resultado, List.of(origem));
+        return resultado;
+    }
+
+    private Tag verificarConexao(Tag tag) throws Exception {
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        return tag;
+    }
+
+    // No pipeline o PDU reference é carimbado no frame: envia uma cópia do frame da tag
+    private byte[] lerTagPipeline(Tag tag) throws Exception {
+        byte[] template = tag.readRequest();
+        byte[] frame = aguardar(pipeline.submit(Arrays.copyOf(template, template.length)));
+        Tag.checkReadResponse(tag, frame, frame.length);
+        return frame;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Envio pelo cliente sequencial ou pelo pipeline, conforme o modo da conexão
+    // --------------------------------------------------------------------------------------------
+    private Object lerTag(int db, int startAdd, int bit, int size, String type) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.sendReadRequest(db, startAdd, bit, size, type);
+            }
+        }
+        byte[] frame = aguardar(pipeline.submit(S7ProtocolClient.createReadRequest(db, startAdd, bit, size, type)));
+        return S7ProtocolClient.decodeReadResponse(frame, db, startAdd, size, type);
+    }
+
+    private boolean escreverTag(int db, int startAdd, int bit, int size, String type, Object value) throws Exception {
+        if (pipeline == null) {
+            synchronized (io) {
+                return client.sendWriteRequest(db, startAdd, bit, size, type, value);
+            }
+        }
+        byte[] frame = aguardar(pipeline.submit(S7ProtocolClient.createWriteRequest(db, startAdd, bit, size, type, value)));
+        return S7ProtocolClient.writeAckOk(frame, frame.length);
+    }
+
+    private static <T> T aguardar(CompletableFuture<T> futuro) throws Exception {
+        try {
+            return futuro.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof TimeoutException) {
+                throw new Exception("Timeout aguardando resposta do CLP.", causa);
+            }
+            throw causa instanceof Exception ex ? ex : new Exception(causa);
+        }
     }
 
     // --------------------------------------------------------------------------------------------
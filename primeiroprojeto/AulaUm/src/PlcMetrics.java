@@ -0,0 +1,219 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentação por CLP (ip:porta), compartilhada por todas as conexões com
+ * ele: requisições, bytes, round trip, timeouts, reconexões e ciclos de polling.
+ *
+ * Contadores LongAdder e histogramas sem lock: o custo no caminho quente é
+ * um System.nanoTime e alguns incrementos. Cada instância é registrada como
+ * MBean na plataforma na primeira vez que o CLP é usado.
+ */
+public final class PlcMetrics implements PlcMetricsMXBean {
+
+    private static final Map<String, PlcMetrics> POR_PLC = new ConcurrentHashMap<>();
+
+    private final String plc;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+    private volatile String circuito = "FECHADO";
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+    private final LatencyHistogram cicloPolling = new LatencyHistogram();
+
+    private PlcMetrics(String plc) {
+        this.plc = plc;
+    }
+
+    public static PlcMetrics forPlc(String ip, int port) {
+        return POR_PLC.computeIfAbsent(ip + ":" + port, PlcMetrics::registrar);
+    }
+
+    private static PlcMetrics registrar(String plc) {
+        PlcMetrics m = new PlcMetrics(plc);
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName("AulaUm:type=PlcMetrics,plc=" + ObjectName.quote(plc));
+            if (!servidor.isRegistered(nome)) {
+                servidor.registerMBean(m, nome);
+            }
+        } catch (Exception e) {
+            // Sem JMX (ou nome em uso): as métricas continuam disponíveis pela API
+        }
+        return m;
+    }
+
+    // ------------------------------- Registro (caminho quente) -------------------------------
+    // Requisição com resposta: bytes enviados/recebidos e round trip
+    void requisicao(int enviados, int recebidos, long nanos) {
+        requests.increment();
+        bytesOut.add(enviados);
+        bytesIn.add(recebidos);
+        roundTrip.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    // Modo pipeline/NIO: bytes contados no envio e na recepção, latência por job
+    void enviado(int bytes) {
+        bytesOut.add(bytes);
+    }
+
+    void recebido(int bytes) {
+        bytesIn.add(bytes);
+    }
+
+    void job(long nanos) {
+        requests.increment();
+        roundTrip.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    void timeout() {
+        timeouts.increment();
+    }
+
+    void erro() {
+        errors.increment();
+    }
+
+    void conexao() {
+        connects.increment();
+    }
+
+    void reconexao() {
+        reconnects.increment();
+    }
+
+    // Troca para a sessão reserva, sem novo handshake
+    void failover() {
+        failovers.increment();
+    }
+
+    void circuito(String estado) {
+        circuito = estado;
+    }
+
+    void ciclo(long nanos, boolean estourou) {
+        cicloPolling.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (estourou) {
+            overruns.increment();
+        }
+    }
+
+    // ------------------------------- Leitura (JMX) -------------------------------
+    @Override
+    public String getPlc() {
+        return plc;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    @Override
+    public long getReconnects() {
+        return reconnects.sum();
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return roundTrip.percentile(50);
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return roundTrip.percentile(99);
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return roundTrip.getMax();
+    }
+
+    @Override
+    public long getPollCycles() {
+        return cicloPolling.getCount();
+    }
+
+    @Override
+    public long getPollCycleP50Micros() {
+        return cicloPolling.percentile(50);
+    }
+
+    @Override
+    public long getPollCycleP99Micros() {
+        return cicloPolling.percentile(99);
+    }
+
+    @Override
+    public long getPollCycleMaxMicros() {
+        return cicloPolling.getMax();
+    }
+
+    @Override
+    public long getCycleOverruns() {
+        return overruns.sum();
+    }
+
+    @Override
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    @Override
+    public String getCircuitState() {
+        return circuito;
+    }
+
+    @Override
+    public void reset() {
+        requests.reset();
+        bytesIn.reset();
+        bytesOut.reset();
+        timeouts.reset();
+        errors.reset();
+        connects.reset();
+        reconnects.reset();
+        overruns.reset();
+        failovers.reset();
+        roundTrip.reset();
+        cicloPolling.reset();
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Métricas de um CLP publicadas no JMX (AulaUm:type=PlcMetrics,plc="ip:porta").
+ * Latências em microssegundos.
+ */
+public interface PlcMetricsMXBean {
+
+    String getPlc();
+
+    long getRequests();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getTimeouts();
+
+    long getErrors();
+
+    long getConnects();
+
+    long getReconnects();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP99Micros();
+
+    long getLatencyMaxMicros();
+
+    long getPollCycles();
+
+    long getPollCycleP50Micros();
+
+    long getPollCycleP99Micros();
+
+    long getPollCycleMaxMicros();
+
+    long getCycleOverruns();
+
+    long getFailovers();
+
+    // Estado do circuit breaker de reconexão: FECHADO, ABERTO ou MEIO_ABERTO
+    String getCircuitState();
+
+    void reset();
+}
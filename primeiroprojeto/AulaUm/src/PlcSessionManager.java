@@ -0,0 +1,308 @@
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gerenciador de sessões (pool de conexões) por CLP, chaveado por IP/porta/rack/slot.
+ *
+ * Operações avulsas pegam uma sessão emprestada (Lease) em vez de abrir e
+ * fechar uma conexão a cada leitura/escrita. As CPUs S7 têm poucos slots de
+ * conexão, então há um limite de sessões por CLP; quem pede além do limite
+ * espera uma sessão ser devolvida.
+ *
+ *   • Conexão preguiçosa: a sessão só é aberta no primeiro acquire (ou em warmUp)
+ *   • Sessões ociosas por mais de idleTimeoutMs são fechadas
+ *   • Sessões ociosas há mais de VALIDAR_APOS_MS passam por um health-check antes do empréstimo
+ *   • CLP com o circuito de reconexão aberto: acquire falha sem esperar o timeout de conexão
+ */
+public class PlcSessionManager implements Closeable {
+
+    public static final int PORTA_S7 = 102;
+
+    // Sessão parada há mais que isso é testada antes de ser entregue
+    private static final long VALIDAR_APOS_MS = 10_000;
+
+    private static final PlcSessionManager INSTANCE = new PlcSessionManager(2, 60_000);
+
+    private final int maxSessoesPorPlc;
+    private final long idleTimeoutMs;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService limpeza;
+    private volatile S7NioTransport transporte;
+
+    // Instância única do processo
+    public static PlcSessionManager getInstance() {
+        return INSTANCE;
+    }
+
+    public PlcSessionManager(int maxSessoesPorPlc, long idleTimeoutMs) {
+        this.maxSessoesPorPlc = Math.max(1, maxSessoesPorPlc);
+        this.idleTimeoutMs = idleTimeoutMs;
+
+        limpeza = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "plc-session-eviction");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = Math.max(1000, idleTimeoutMs / 2);
+        limpeza.scheduleWithFixedDelay(this::fecharOciosas, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    // Sessões abertas daqui em diante usam o transporte NIO (null = socket bloqueante)
+    public void setTransport(S7NioTransport transporte) {
+        this.transporte = transporte;
+    }
+
+    public Lease acquire(String ip) throws Exception {
+        return acquire(ip, PORTA_S7, 0, 1, 5000);
+    }
+
+    public Lease acquire(String ip, int rack, int slot) throws Exception {
+        return acquire(ip, PORTA_S7, rack, slot, 5000);
+    }
+
+    /**
+     * Empresta uma sessão conectada. Se todas as sessões do CLP estiverem em uso
+     * e o limite foi atingido, espera até timeoutMs por uma devolução.
+     */
+    public Lease acquire(String ip, int port, int rack, int slot, long timeoutMs) throws Exception {
+        Pool pool = pools.computeIfAbsent(chave(ip, port, rack, slot), k -> new Pool(ip, port, rack, slot));
+        return new Lease(pool, pool.emprestar(timeoutMs));
+    }
+
+    // Abre uma sessão em segundo plano para que o primeiro acquire já a encontre pronta
+    public void warmUp(String ip, int port, int rack, int slot) {
+        Pool pool = pools.computeIfAbsent(chave(ip, port, rack, slot), k -> new Pool(ip, port, rack, slot));
+        limpeza.execute(() -> {
+            try {
+                pool.aquecer();
+            } catch (Exception ignored) {
+                // Sem sucesso agora: a sessão será aberta no primeiro acquire
+            }
+        });
+    }
+
+    public int getSessoesAbertas(String ip, int port, int rack, int slot) {
+        Pool pool = pools.get(chave(ip, port, rack, slot));
+        return pool == null ? 0 : pool.total();
+    }
+
+    @Override
+    public void close() {
+        limpeza.shutdownNow();
+        for (Pool pool : pools.values()) {
+            pool.fecharTudo();
+        }
+        pools.clear();
+    }
+
+    private static String chave(String ip, int port, int rack, int slot) {
+        return ip + ":" + port + "/" + rack + "/" + slot;
+    }
+
+    private void fecharOciosas() {
+        long limite = System.currentTimeMillis() - idleTimeoutMs;
+        for (Pool pool : pools.values()) {
+            pool.fecharOciosasAntesDe(limite);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Empréstimo
+    // --------------------------------------------------------------------------------------------
+    /**
+     * Sessão emprestada. Use com try-with-resources; em caso de erro de
+     * comunicação chame invalidate() para que a conexão seja descartada em vez
+     * de voltar ao pool.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Pool pool;
+        private final Sessao sessao;
+        private boolean devolvida;
+        private boolean invalida;
+
+        private Lease(Pool pool, Sessao sessao) {
+            this.pool = pool;
+            this.sessao = sessao;
+        }
+
+        public PlcConnector connector() {
+            return sessao.connector;
+        }
+
+        public void invalidate() {
+            invalida = true;
+        }
+
+        @Override
+        public void close() {
+            if (devolvida) return;
+            devolvida = true;
+            pool.devolver(sessao, invalida || !sessao.connector.isConnected());
+        }
+    }
+
+    private static final class Sessao {
+        final PlcConnector connector;
+        long ultimoUso = System.currentTimeMillis();
+
+        Sessao(PlcConnector connector) {
+            this.connector = connector;
+        }
+    }
+
+    private final class Pool {
+        final String ip;
+        final int port;
+        final int rack;
+        final int slot;
+        private final Deque<Sessao> ociosas = new ArrayDeque<>();
+        private int total;
+
+        Pool(String ip, int port, int rack, int slot) {
+            this.ip = ip;
+            this.port = port;
+            this.rack = rack;
+            this.slot = slot;
+        }
+
+        synchronized int total() {
+            return total;
+        }
+
+        Sessao emprestar(long timeoutMs) throws Exception {
+            long prazo = System.currentTimeMillis() + timeoutMs;
+            while (true) {
+                Sessao sessao;
+                boolean abrirNova = false;
+                synchronized (this) {
+                    while (ociosas.isEmpty() && total >= maxSessoesPorPlc) {
+                        long falta = prazo - System.currentTimeMillis();
+                        if (falta <= 0) {
+                            throw new Exception("Todas as " + maxSessoesPorPlc + " sessões com o CLP " + ip
+                                    + " estão em uso.");
+                        }
+                        wait(falta);
+                    }
+                    sessao = ociosas.pollFirst(); // mais recente primeiro: as antigas expiram
+                    if (sessao == null) {
+                        total++; // reserva o slot antes de conectar fora do lock
+                        abrirNova = true;
+                    }
+                }
+
+                if (abrirNova) {
+                    return abrir();
+                }
+                if (saudavel(sessao)) {
+                    return sessao;
+                }
+                descartar(sessao);
+            }
+        }
+
+        void aquecer() throws Exception {
+            synchronized (this) {
+                if (total > 0) return; // já existe sessão (aberta ou abrindo)
+                total++;
+            }
+            devolver(abrir(), false);
+        }
+
+        // Com o circuito do CLP aberto falha na hora, sem tentar o handshake (ver ReconnectPolicy)
+        private Sessao abrir() throws Exception {
+            ReconnectPolicy politica = ReconnectPolicy.forPlc(ip, port);
+            PlcConnector connector = new PlcConnector(ip, port, rack, slot);
+            connector.setTransport(transporte);
+            try {
+                if (politica.getEstado() != ReconnectPolicy.Estado.FECHADO && !politica.permitir()) {
+                    throw politica.circuitoAberto();
+                }
+                try {
+                    connector.connect();
+                } catch (Exception e) {
+                    politica.falha();
+                    throw e;
+                }
+                politica.sucesso();
+                return new Sessao(connector);
+            } catch (Exception e) {
+                synchronized (this) {
+                    total--;
+                    notifyAll();
+                }
+                throw e;
+            }
+        }
+
+        // Socket aberto e, se ficou parada muito tempo, um Read Var respondido (mesmo com erro de item)
+        private boolean saudavel(Sessao sessao) {
+            if (!sessao.connector.isConnected()) return false;
+            if (System.currentTimeMillis() - sessao.ultimoUso < VALIDAR_APOS_MS) return true;
+            try {
+                sessao.connector.readMulti(List.of(S7ReadItem.ofByte(1, 0)));
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        void devolver(Sessao sessao, boolean descartar) {
+            if (descartar) {
+                descartar(sessao);
+                return;
+            }
+            sessao.ultimoUso = System.currentTimeMillis();
+            synchronized (this) {
+                ociosas.addFirst(sessao);
+                notifyAll();
+            }
+        }
+
+        private void descartar(Sessao sessao) {
+            try {
+                sessao.connector.disconnect();
+            } catch (Exception ignored) {}
+            synchronized (this) {
+                total--;
+                notifyAll();
+            }
+        }
+
+        void fecharOciosasAntesDe(long limite) {
+            List<Sessao> expiradas = new ArrayList<>();
+            synchronized (this) {
+                Iterator<Sessao> it = ociosas.iterator();
+                while (it.hasNext()) {
+                    Sessao s = it.next();
+                    if (s.ultimoUso < limite) {
+                        it.remove();
+                        expiradas.add(s);
+                    }
+                }
+            }
+            for (Sessao s : expiradas) {
+                descartar(s);
+            }
+        }
+
+        void fecharTudo() {
+            List<Sessao> todas;
+            synchronized (this) {
+                todas = new ArrayList<>(ociosas);
+                ociosas.clear();
+            }
+            for (Sessao s : todas) {
+                descartar(s);
+            }
+        }
+    }
+}
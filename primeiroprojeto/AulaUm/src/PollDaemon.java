@@ -0,0 +1,269 @@
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Serviço de polling sem interface: alternativa headless ao AppSmartClp e à
+ * bancada, para rodar como serviço nos PCs da linha.
+ *
+ * Lê CLPs, DBs e grupos de tags de um arquivo .properties, registra todos os
+ * grupos num PollScheduler (uma sessão/thread por CLP, todos em paralelo) e
+ * entrega cada ciclo aos sinks configurados. Só usa java.base e java.management:
+ * AWT/Swing não são carregados.
+ *
+ *   java -XX:+UseSerialGC -Xmx64m -Xss256k -XX:TieredStopAtLevel=1 -cp bin PollDaemon poll.properties
+ *
+ * Exemplo de configuração:
+ *   plc.estoque.ip=10.74.241.10
+ *   plc.estoque.port=102
+ *   plc.estoque.rack=0          (padrão 0)
+ *   plc.estoque.slot=1          (padrão 1; S7-300 costuma usar slot 2)
+ *
+ *   grupo.esteira.plc=estoque
+ *   grupo.esteira.db=6
+ *   grupo.esteira.periodo=100
+ *   grupo.esteira.prioridade=ALTA
+ *   grupo.esteira.tags=DBW10, DBD14, DBX20.3, DB7.DBB0
+ *
+ *   planner.maxGap=16
+ *   standby=true                (conexão reserva por CLP, ver PollScheduler)
+ *   transporte=nio              (socket, padrão, ou nio: todos os CLPs em transporte.threads threads de I/O)
+ *   transporte.threads=2
+ *   sinks=log,historian,metrics
+ *   historian.dir=/var/lib/aulaum/historico
+ *
+ * Tags sem "DBn." usam o db do grupo. Ver LogSink, HistorianSink e
+ * MetricsSink para as chaves de cada sink.
+ */
+public class PollDaemon {
+
+    private final PollScheduler scheduler;
+    private final List<PollGroup> grupos = new ArrayList<>();
+    private final List<PollSink> sinks = new ArrayList<>();
+    private final List<PollScheduler.Handle> handles = new ArrayList<>();
+    private S7NioTransport transporte;
+    private final CountDownLatch parado = new CountDownLatch(1);
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Path arquivo = Path.of(args.length > 0 ? args[0] : "poll.properties");
+
+        PollDaemon daemon;
+        try {
+            daemon = new PollDaemon(carregar(arquivo));
+            daemon.iniciar();
+        } catch (Exception e) {
+            System.err.println("Erro ao iniciar o serviço de polling: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::parar, "poll-daemon-stop"));
+        daemon.aguardar();
+    }
+
+    static Properties carregar(Path arquivo) throws Exception {
+        Properties config = new Properties();
+        try (Reader r = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            config.load(r);
+        } catch (Exception e) {
+            throw new Exception("Não foi possível ler " + arquivo + ": " + e.getMessage(), e);
+        }
+        return config;
+    }
+
+    public PollDaemon(Properties config) throws Exception {
+        scheduler = new PollScheduler(new ReadPlanner(inteiro(config, "planner.maxGap", 16)));
+        scheduler.setStandby(Boolean.parseBoolean(config.getProperty("standby", "false").trim()));
+        lerGrupos(config);
+        if (grupos.isEmpty()) {
+            throw new Exception("Configuração sem grupos (grupo.<nome>.tags).");
+        }
+
+        try {
+            for (String nome : config.getProperty("sinks", "log").split(",")) {
+                if (!nome.isBlank()) {
+                    sinks.add(PollSink.create(nome.trim(), config));
+                }
+            }
+            transporte = abrirTransporte(config);
+            scheduler.setTransport(transporte);
+        } catch (Exception e) {
+            fecharSinks();
+            throw e;
+        }
+    }
+
+    public List<PollGroup> getGrupos() {
+        return grupos;
+    }
+
+    public synchronized void iniciar() throws Exception {
+        for (PollGroup grupo : grupos) {
+            PollListener[] destinos = new PollListener[sinks.size()];
+            for (int i = 0; i < destinos.length; i++) {
+                destinos[i] = sinks.get(i).listener(grupo);
+            }
+            handles.add(scheduler.register(grupo, new Distribuidor(destinos)));
+        }
+    }
+
+    public synchronized void parar() {
+        for (PollScheduler.Handle h : handles) {
+            h.cancel();
+        }
+        handles.clear();
+        scheduler.close();
+        if (transporte != null) {
+            transporte.close();
+        }
+        fecharSinks();
+        parado.countDown();
+    }
+
+    public void aguardar() {
+        try {
+            parado.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fecharSinks() {
+        for (PollSink s : sinks) {
+            try {
+                s.close();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    // ------------------------------- Configuração -------------------------------
+    private void lerGrupos(Properties config) throws Exception {
+        for (String nome : nomes(config, "grupo.", ".tags")) {
+            String prefixo = "grupo." + nome + ".";
+            String plc = obrigatorio(config, prefixo + "plc");
+            String ip = obrigatorio(config, "plc." + plc + ".ip");
+            int port = inteiro(config, "plc." + plc + ".port", PlcSessionManager.PORTA_S7);
+            int rack = inteiro(config, "plc." + plc + ".rack", 0);
+            int slot = inteiro(config, "plc." + plc + ".slot", 1);
+            long periodo = inteiro(config, prefixo + "periodo", 1000);
+            String db = config.getProperty(prefixo + "db", "").trim();
+
+            PollGroup.Prioridade prioridade;
+            try {
+                prioridade = PollGroup.Prioridade.valueOf(
+                        config.getProperty(prefixo + "prioridade", "NORMAL").trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new Exception("Prioridade inválida no grupo " + nome + " (use ALTA, NORMAL ou BAIXA).");
+            }
+
+            List<S7ReadItem> tags = new ArrayList<>();
+            for (String t : obrigatorio(config, prefixo + "tags").split(",")) {
+                String endereco = t.trim();
+                if (endereco.isEmpty()) continue;
+                if (!endereco.toUpperCase().matches("DB\\d+\\..*")) {
+                    if (db.isEmpty()) {
+                        throw new Exception("Tag " + endereco + " do grupo " + nome + " sem DB (defina " + prefixo + "db).");
+                    }
+                    endereco = "DB" + db + "." + endereco;
+                }
+                try {
+                    tags.add(S7ReadItem.parse(endereco));
+                } catch (IllegalArgumentException e) {
+                    throw new Exception("Grupo " + nome + ": " + e.getMessage());
+                }
+            }
+            if (tags.isEmpty()) {
+                throw new Exception("Grupo " + nome + " sem tags.");
+            }
+            grupos.add(new PollGroup(nome, ip, port, rack, slot, tags, periodo, prioridade));
+        }
+    }
+
+    private static S7NioTransport abrirTransporte(Properties config) throws Exception {
+        String tipo = config.getProperty("transporte", "socket").trim().toLowerCase();
+        return switch (tipo) {
+            case "socket" -> null;
+            case "nio" -> new S7NioTransport(inteiro(config, "transporte.threads", 2));
+            default -> throw new Exception("Transporte inválido: " + tipo + " (use socket ou nio).");
+        };
+    }
+
+    // Nomes x das chaves prefixo + x + sufixo, em ordem alfabética
+    private static TreeSet<String> nomes(Properties config, String prefixo, String sufixo) {
+        TreeSet<String> nomes = new TreeSet<>();
+        for (String k : config.stringPropertyNames()) {
+            if (k.startsWith(prefixo) && k.endsWith(sufixo) && k.length() > prefixo.length() + sufixo.length()) {
+                nomes.add(k.substring(prefixo.length(), k.length() - sufixo.length()));
+            }
+        }
+        return nomes;
+    }
+
+    private static String obrigatorio(Properties config, String chave) throws Exception {
+        String v = config.getProperty(chave, "").trim();
+        if (v.isEmpty()) {
+            throw new Exception("Configuração sem " + chave + ".");
+        }
+        return v;
+    }
+
+    private static int inteiro(Properties config, String chave, int padrao) throws Exception {
+        String v = config.getProperty(chave, "").trim();
+        try {
+            return v.isEmpty() ? padrao : Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new Exception("Valor inválido em " + chave + ": " + v);
+        }
+    }
+
+    // Repassa cada evento a todos os sinks do grupo; um sink com defeito não afeta os outros
+    private static final class Distribuidor implements PollListener {
+        private final PollListener[] destinos;
+
+        Distribuidor(PollListener[] destinos) {
+            this.destinos = destinos;
+        }
+
+        @Override
+        public void onResult(PollResult resultado) {
+            for (PollListener d : destinos) {
+                try {
+                    d.onResult(resultado);
+                } catch (RuntimeException ignored) {}
+            }
+        }
+
+        @Override
+        public void onStatus(PollGroup grupo, Status status, Exception erro) {
+            for (PollListener d : destinos) {
+                try {
+                    d.onStatus(grupo, status, erro);
+                } catch (RuntimeException ignored) {}
+            }
+        }
+
+        @Override
+        public void onOverrun(PollGroup grupo, int ciclosPerdidos, long duracaoNanos) {
+            for (PollListener d : destinos) {
+                try {
+                    d.onOverrun(grupo, ciclosPerdidos, duracaoNanos);
+                } catch (RuntimeException ignored) {}
+            }
+        }
+
+        @Override
+        public void onRateChange(PollGroup grupo, long periodoEfetivoMs) {
+            for (PollListener d : destinos) {
+                try {
+                    d.onRateChange(grupo, periodoEfetivoMs);
+                } catch (RuntimeException ignored) {}
+            }
+        }
+    }
+}
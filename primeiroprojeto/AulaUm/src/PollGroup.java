@@ -0,0 +1,34 @@
+import java.util.List;
+
+/**
+ * Grupo de polling: um conjunto de tags de um CLP lido a cada periodoMs.
+ *
+ * Com o link saturado o PollScheduler estica o período dos grupos de menor
+ * prioridade (nunca os de prioridade ALTA) e volta ao período pedido quando
+ * a carga cai. Grupos do mesmo ip:port com rack/slot diferentes usam
+ * sessões separadas.
+ */
+public record PollGroup(String nome, String ip, int port, int rack, int slot,
+                        List<S7ReadItem> tags, long periodoMs, Prioridade prioridade) {
+
+    public enum Prioridade { ALTA, NORMAL, BAIXA }
+
+    public PollGroup {
+        if (periodoMs <= 0) {
+            throw new IllegalArgumentException("O período de polling deve ser positivo.");
+        }
+        tags = List.copyOf(tags);
+        if (prioridade == null) {
+            prioridade = Prioridade.NORMAL;
+        }
+    }
+
+    // Rack 0 / slot 1, o padrão do PlcConnector
+    public PollGroup(String nome, String ip, int port, List<S7ReadItem> tags, long periodoMs, Prioridade prioridade) {
+        this(nome, ip, port, 0, 1, tags, periodoMs, prioridade);
+    }
+
+    public PollGroup(String nome, String ip, int port, List<S7ReadItem> tags, long periodoMs) {
+        this(nome, ip, port, tags, periodoMs, Prioridade.NORMAL);
+    }
+}
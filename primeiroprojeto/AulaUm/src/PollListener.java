@@ -0,0 +1,21 @@
+/**
+ * Recebe os resultados do PollScheduler. As chamadas vêm do thread da sessão
+ * do CLP; consumidores de UI devem repassar para o EDT.
+ */
+public interface PollListener {
+
+    enum Status { CONECTANDO, CONECTADO, RECONECTANDO, FALHA, PARADO }
+
+    void onResult(PollResult resultado);
+
+    default void onStatus(PollGroup grupo, Status status, Exception erro) {
+    }
+
+    // Ciclo que terminou depois do próximo prazo: ciclosPerdidos prazos foram pulados
+    default void onOverrun(PollGroup grupo, int ciclosPerdidos, long duracaoNanos) {
+    }
+
+    // Período efetivo alterado pelo controle de carga (periodoMs do grupo = sem esticamento)
+    default void onRateChange(PollGroup grupo, long periodoEfetivoMs) {
+    }
+}
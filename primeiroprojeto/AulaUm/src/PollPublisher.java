@@ -0,0 +1,275 @@
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Publica os ciclos de um grupo de polling como Flow.Publisher, para vários
+ * consumidores ao mesmo tempo (grade, histórico, alarmes).
+ *
+ * Cada assinatura tem buffer próprio, limitado, e é entregue pelo executor
+ * escolhido pelo assinante (ex.: SwingUtilities::invokeLater para a tela).
+ * O thread da sessão só enfileira e nunca espera: se o consumidor atrasa, o
+ * buffer transborda conforme a política (Overflow) em vez de crescer ou de
+ * travar o polling. A demanda (request) é respeitada: sem pedido, os valores
+ * ficam no buffer.
+ *
+ *   PollPublisher fluxo = new PollPublisher(grupo);
+ *   agendador.register(grupo, fluxo);
+ *   fluxo.subscribe(alarmes);                                   // 256, descarta o mais antigo
+ *   fluxo.subscribe(tela, 1, Overflow.CONFLAR, SwingUtilities::invokeLater);
+ *   fluxo.tag(3).subscribe(tendencia);                          // só a tag 3 do grupo
+ */
+public class PollPublisher implements Flow.Publisher<PollResult>, PollListener {
+
+    public enum Overflow {
+        DESCARTAR_ANTIGO, // buffer cheio: sai o valor mais antigo
+        CONFLAR           // só o valor mais recente fica pendente
+    }
+
+    private final PollGroup grupo;
+    private final PollListener proximo;
+    private final List<Assinatura<?>> assinaturas = new CopyOnWriteArrayList<>();
+    private volatile boolean fechado;
+
+    public PollPublisher(PollGroup grupo) {
+        this(grupo, null);
+    }
+
+    // Repassa também os eventos ao listener seguinte (ex.: status para a tela)
+    public PollPublisher(PollGroup grupo, PollListener proximo) {
+        this.grupo = grupo;
+        this.proximo = proximo;
+    }
+
+    public PollGroup getGrupo() {
+        return grupo;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PollResult> assinante) {
+        subscribe(assinante, Flow.defaultBufferSize(), Overflow.DESCARTAR_ANTIGO, ForkJoinPool.commonPool());
+    }
+
+    public void subscribe(Flow.Subscriber<? super PollResult> assinante, int capacidade, Overflow politica,
+                          Executor executor) {
+        assinar(assinante, Function.identity(), capacidade, politica, executor);
+    }
+
+    // Valores de uma tag do grupo (posição em PollGroup.tags()), um TagChange por ciclo
+    public Flow.Publisher<TagChange> tag(int indice) {
+        return tag(indice, Flow.defaultBufferSize(), Overflow.DESCARTAR_ANTIGO, ForkJoinPool.commonPool());
+    }
+
+    public Flow.Publisher<TagChange> tag(int indice, int capacidade, Overflow politica, Executor executor) {
+        Objects.checkIndex(indice, grupo.tags().size());
+        return assinante -> assinar(assinante,
+                r -> new TagChange(indice, r.valores().get(indice), r.timestampMillis()), capacidade, politica, executor);
+    }
+
+    private <T> void assinar(Flow.Subscriber<? super T> assinante, Function<PollResult, T> extrator,
+                             int capacidade, Overflow politica, Executor executor) {
+        Objects.requireNonNull(assinante);
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade do buffer deve ser ao menos 1.");
+        }
+        Assinatura<T> a = new Assinatura<>(assinante, extrator,
+                politica == Overflow.CONFLAR ? 1 : capacidade, executor);
+        assinaturas.add(a);
+        if (fechado) {
+            a.completar();
+        }
+        a.sinalizar(); // onSubscribe no executor do assinante
+    }
+
+    public int getAssinantes() {
+        return assinaturas.size();
+    }
+
+    // Valores descartados por transbordo, somando todas as assinaturas ativas
+    public long getDescartados() {
+        long total = 0;
+        for (Assinatura<?> a : assinaturas) {
+            total += a.descartados.get();
+        }
+        return total;
+    }
+
+    // Entrega o que está nos buffers e encerra as assinaturas com onComplete
+    public void close() {
+        fechado = true;
+        for (Assinatura<?> a : assinaturas) {
+            a.completar();
+        }
+    }
+
+    // ------------------------------- PollListener (thread da sessão) -------------------------------
+    @Override
+    public void onResult(PollResult resultado) {
+        if (!fechado) {
+            for (Assinatura<?> a : assinaturas) {
+                a.oferecer(resultado);
+            }
+        }
+        if (proximo != null) {
+            proximo.onResult(resultado);
+        }
+    }
+
+    @Override
+    public void onStatus(PollGroup grupo, Status status, Exception erro) {
+        if (proximo != null) {
+            proximo.onStatus(grupo, status, erro);
+        }
+    }
+
+    @Override
+    public void onOverrun(PollGroup grupo, int ciclosPerdidos, long duracaoNanos) {
+        if (proximo != null) {
+            proximo.onOverrun(grupo, ciclosPerdidos, duracaoNanos);
+        }
+    }
+
+    @Override
+    public void onRateChange(PollGroup grupo, long periodoEfetivoMs) {
+        if (proximo != null) {
+            proximo.onRateChange(grupo, periodoEfetivoMs);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Assinatura: buffer limitado + entrega serializada no executor do assinante
+    // --------------------------------------------------------------------------------------------
+    private final class Assinatura<T> implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> assinante;
+        private final Function<PollResult, T> extrator;
+        private final int capacidade;
+        private final Executor executor;
+
+        private final ArrayDeque<T> buffer;
+        private final AtomicLong demanda = new AtomicLong();
+        private final AtomicInteger pendencias = new AtomicInteger();
+        final AtomicLong descartados = new AtomicLong();
+
+        private volatile boolean cancelada;
+        private volatile boolean completa;
+        private volatile Throwable erro;
+
+        // Só no thread de entrega
+        private boolean iniciada;
+        private boolean terminada;
+
+        Assinatura(Flow.Subscriber<? super T> assinante, Function<PollResult, T> extrator, int capacidade,
+                   Executor executor) {
+            this.assinante = assinante;
+            this.extrator = extrator;
+            this.capacidade = capacidade;
+            this.executor = executor;
+            this.buffer = new ArrayDeque<>(Math.min(capacidade, 64));
+        }
+
+        void oferecer(PollResult resultado) {
+            if (cancelada || completa) return;
+            T valor = extrator.apply(resultado);
+            synchronized (buffer) {
+                if (buffer.size() == capacidade) {
+                    buffer.pollFirst();
+                    descartados.incrementAndGet();
+                }
+                buffer.addLast(valor);
+            }
+            sinalizar();
+        }
+
+        void completar() {
+            completa = true;
+            sinalizar();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Regra 3.9 da especificação: erro em vez de exceção
+                erro = new IllegalArgumentException("request(" + n + "): a demanda deve ser positiva.");
+            } else {
+                demanda.accumulateAndGet(n, (atual, mais) -> atual + mais < 0 ? Long.MAX_VALUE : atual + mais);
+            }
+            sinalizar();
+        }
+
+        @Override
+        public void cancel() {
+            cancelada = true;
+            assinaturas.remove(this);
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        // Agenda uma passada de entrega se nenhuma estiver em andamento
+        void sinalizar() {
+            if (pendencias.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::entregar);
+                } catch (RuntimeException e) {
+                    // Executor recusou (ex.: encerrado): a assinatura termina aqui
+                    cancel();
+                }
+            }
+        }
+
+        private void entregar() {
+            int passadas = 1;
+            do {
+                if (!iniciada) {
+                    iniciada = true;
+                    try {
+                        assinante.onSubscribe(this);
+                    } catch (Throwable t) {
+                        cancel();
+                    }
+                }
+
+                while (!cancelada && !terminada && erro == null && demanda.get() > 0) {
+                    T valor;
+                    synchronized (buffer) {
+                        valor = buffer.pollFirst();
+                    }
+                    if (valor == null) break;
+                    demanda.decrementAndGet();
+                    try {
+                        assinante.onNext(valor);
+                    } catch (Throwable t) {
+                        // Assinante com defeito: cancela só a assinatura dele
+                        cancel();
+                    }
+                }
+
+                if (!cancelada && !terminada) {
+                    if (erro != null) {
+                        terminada = true;
+                        cancel();
+                        assinante.onError(erro);
+                    } else if (completa && vazio()) {
+                        terminada = true;
+                        assinaturas.remove(this);
+                        assinante.onComplete();
+                    }
+                }
+                passadas = pendencias.addAndGet(-passadas);
+            } while (passadas != 0);
+        }
+
+        private boolean vazio() {
+            synchronized (buffer) {
+                return buffer.isEmpty();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+import java.util.List;
+
+/**
+ * Resultado de um ciclo de polling de um grupo.
+ *
+ * valores segue a ordem de PollGroup.tags(); timestampMillis é o início do
+ * ciclo e duracaoNanos o tempo gasto na leitura.
+ */
+public record PollResult(PollGroup grupo, List<S7ReadResult> valores, long timestampMillis, long duracaoNanos) {
+}
@@ -0,0 +1,813 @@
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Agendador de polling independente de Swing.
+ *
+ * Cada CLP (ip:porta) tem uma sessão com o seu próprio thread (virtual, quando
+ * a JVM oferece) e uma única conexão; vários grupos podem ser registrados na
+ * mesma sessão. Os ciclos seguem prazos fixos (início + k × período), então a
+ * duração da leitura não acumula atraso. Ciclos perdidos são pulados, não
+ * executados em rajada, e avisados ao listener (onOverrun).
+ *
+ * Grupos com períodos diferentes dividem a mesma sessão: depois da primeira
+ * leitura cada grupo é defasado para o ponto do seu período mais distante dos
+ * prazos dos outros, espalhando os PDUs no tempo. Se a sessão fica saturada
+ * (leituras ocupando mais de CARGA_MAXIMA do tempo, ou prazos perdidos), o
+ * período do grupo de menor prioridade é dobrado, até ESTICAMENTO_MAXIMO
+ * vezes; com folga, os grupos voltam ao período pedido (onRateChange).
+ *
+ * Reconexão: queda transitória reconecta na hora; falhas seguidas seguem o
+ * backoff com jitter e o circuit breaker do ReconnectPolicy do CLP. Com
+ * setStandby(true) cada sessão mantém uma segunda conexão já negociada
+ * (testada a cada PROVA_RESERVA_NANOS); numa queda o polling passa para ela
+ * e repete o ciclo em um round trip, sem handshake TCP/COTP/Setup nem espera.
+ *
+ * O thread da sessão é o único dono do socket. Operações avulsas (escritas da
+ * UI, diálogos) entram numa fila com prioridade e são executadas por ele:
+ * as de prioridade ALTA entre um PDU e outro da varredura, então esperam no
+ * máximo um round trip; as demais, entre ciclos.
+ *
+ * Pode ser usado pela UI, pelo AppSmartClp ou por um serviço headless.
+ */
+public class PollScheduler implements Closeable {
+
+    // Sessão reserva: intervalo do teste de vida e espera enquanto não pode abrir
+    private static final long PROVA_RESERVA_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long ESPERA_RESERVA_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Prazo de uma operação avulsa (fila + execução): sem conexão, o chamador não espera a reconexão
+    static final long PRAZO_PEDIDO_MS = 10_000;
+
+    // Controle de carga por sessão: fração do tempo gasta em leituras
+    private static final double CARGA_MAXIMA = 0.85;
+    private static final double CARGA_LIVRE = 0.5;
+    private static final long AVALIACAO_CARGA_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int ESTICAMENTO_MAXIMO = 16;
+
+    // Limite de prazos considerados ao escolher a fase de um grupo
+    private static final int MAX_PONTOS_FASE = 256;
+
+    private final Map<String, Sessao> sessoes = new ConcurrentHashMap<>();
+    private final ReadPlanner planner;
+    private volatile boolean standby;
+    private volatile S7NioTransport transporte;
+
+    public PollScheduler() {
+        this(new ReadPlanner(16));
+    }
+
+    public PollScheduler(ReadPlanner planner) {
+        this.planner = planner;
+    }
+
+    /**
+     * Mantém uma conexão reserva por CLP nas sessões criadas daqui em diante.
+     * Ocupa um slot de conexão a mais em cada CPU.
+     */
+    public void setStandby(boolean standby) {
+        this.standby = standby;
+    }
+
+    /**
+     * Conexões das sessões (e reservas) abertas daqui em diante pelo
+     * transporte NIO, em vez de um socket bloqueante cada. O thread da sessão
+     * continua dono da conexão; o I/O de todos os CLPs fica nos poucos threads
+     * do transporte. null volta ao socket bloqueante.
+     */
+    public void setTransport(S7NioTransport transporte) {
+        this.transporte = transporte;
+    }
+
+    private PlcConnector novoConnector(String ip, int port, int rack, int slot) {
+        PlcConnector c = new PlcConnector(ip, port, rack, slot);
+        c.setTransport(transporte);
+        return c;
+    }
+
+    // Operação avulsa executada na conexão da sessão (ex.: escrita vinda da UI)
+    public interface Operacao<T> {
+        T executar(PlcConnector connector) throws Exception;
+    }
+
+    public Handle register(PollGroup grupo, PollListener listener) {
+        Agendamento agendamento = new Agendamento(grupo, listener);
+        String chave = grupo.ip() + ":" + grupo.port() + "/" + grupo.rack() + "/" + grupo.slot();
+
+        synchronized (sessoes) {
+            Sessao sessao = sessoes.computeIfAbsent(chave,
+                    k -> new Sessao(grupo.ip(), grupo.port(), grupo.rack(), grupo.slot(), k));
+            sessao.adicionar(agendamento);
+            return new Handle(sessao, agendamento);
+        }
+    }
+
+    /**
+     * Assinatura por mudança: o listener recebe só as tags que mudaram em
+     * cada ciclo (respeitando a banda morta), com o timestamp da leitura.
+     */
+    public Handle subscribe(PollGroup grupo, Deadband banda, ChangeListener listener) {
+        return subscribe(grupo, new ChangeDetector(grupo.tags(), banda), listener);
+    }
+
+    // Variante com bandas por tag já configuradas no detector
+    public Handle subscribe(PollGroup grupo, ChangeDetector detector, ChangeListener listener) {
+        if (!detector.getItens().equals(grupo.tags())) {
+            throw new IllegalArgumentException("O detector não corresponde às tags do grupo " + grupo.nome() + ".");
+        }
+        return register(grupo, detector.listener(listener));
+    }
+
+    @Override
+    public void close() {
+        synchronized (sessoes) {
+            for (Sessao sessao : sessoes.values()) {
+                sessao.parar();
+            }
+            sessoes.clear();
+        }
+    }
+
+    /**
+     * Cria o thread de uma sessão: virtual quando a JVM suporta (Java 21+),
+     * caso contrário um thread de plataforma daemon.
+     */
+    static Thread novaThread(String nome, Runnable tarefa) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object b = ofVirtual.invoke(null);
+            b = builder.getMethod("name", String.class).invoke(b, nome);
+            return (Thread) builder.getMethod("unstarted", Runnable.class).invoke(b, tarefa);
+        } catch (ReflectiveOperationException e) {
+            Thread t = new Thread(tarefa, nome);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Handle devolvido ao registrar um grupo
+    // --------------------------------------------------------------------------------------------
+    public final class Handle {
+        private final Sessao sessao;
+        private final Agendamento agendamento;
+
+        private Handle(Sessao sessao, Agendamento agendamento) {
+            this.sessao = sessao;
+            this.agendamento = agendamento;
+        }
+
+        public PollGroup getGrupo() {
+            return agendamento.grupo;
+        }
+
+        public boolean isAtivo() {
+            return agendamento.ativo;
+        }
+
+        public boolean isConectado() {
+            return agendamento.ativo && sessao.connector != null;
+        }
+
+        // Período em uso: o do grupo ou, com a sessão saturada, o esticado
+        public long getPeriodoEfetivoMs() {
+            return TimeUnit.NANOSECONDS.toMillis(agendamento.periodoNanos);
+        }
+
+        public void cancel() {
+            synchronized (sessoes) {
+                if (sessao.remover(agendamento)) {
+                    sessoes.remove(sessao.chave, sessao);
+                }
+            }
+        }
+
+        // Executa na conexão do polling com prioridade ALTA (entre dois PDUs da varredura)
+        public <T> T executar(Operacao<T> operacao) throws Exception {
+            return executar(PollGroup.Prioridade.ALTA, operacao);
+        }
+
+        /**
+         * Enfileira a operação para o thread da sessão e espera o resultado, no
+         * máximo PRAZO_PEDIDO_MS. NORMAL e BAIXA só rodam entre ciclos de polling.
+         * Na EDT prefira executarAsync.
+         */
+        public <T> T executar(PollGroup.Prioridade prioridade, Operacao<T> operacao) throws Exception {
+            if (Thread.currentThread() == sessao.thread) {
+                // Chamada de dentro de um listener: já estamos no dono da conexão
+                return operacao.executar(sessao.conectado());
+            }
+
+            Pedido<T> pedido = sessao.enviar(prioridade, operacao);
+            try {
+                return pedido.resultado.get(PRAZO_PEDIDO_MS + 1000, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw sessao.semResposta(); // o prazo do pedido já deveria ter vencido
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception erro) {
+                    throw erro;
+                }
+                throw e;
+            } catch (InterruptedException e) {
+                pedido.resultado.cancel(false); // ainda na fila: não será executado
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+        }
+
+        /**
+         * Mesma fila, sem bloquear o chamador (ex.: EDT). O futuro falha se a
+         * sessão cair antes da execução ou se o pedido passar de PRAZO_PEDIDO_MS.
+         */
+        public <T> CompletableFuture<T> executarAsync(PollGroup.Prioridade prioridade, Operacao<T> operacao) {
+            try {
+                return sessao.enviar(prioridade, operacao).resultado;
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Estado interno
+    // --------------------------------------------------------------------------------------------
+    private static final class Agendamento {
+        final PollGroup grupo;
+        final PollListener listener;
+        final long periodoBaseNanos;
+        volatile long periodoNanos;
+        volatile boolean ativo = true;
+
+        // Acessados só pelo thread da sessão
+        long proximoNanos;
+        boolean defasado;      // false: próximo ciclo imediato, depois escolhe a fase
+        int esticamento = 1;
+        double duracaoMediaNanos;
+        boolean atrasou;       // perdeu prazo desde a última avaliação de carga
+        ReadPlan plano;
+        int geracaoPlano = -1;
+
+        Agendamento(PollGroup grupo, PollListener listener) {
+            this.grupo = grupo;
+            this.listener = listener;
+            this.periodoBaseNanos = TimeUnit.MILLISECONDS.toNanos(grupo.periodoMs());
+            this.periodoNanos = periodoBaseNanos;
+            this.proximoNanos = System.nanoTime();
+        }
+
+        void overrun(int ciclosPerdidos, long duracaoNanos) {
+            try {
+                listener.onOverrun(grupo, ciclosPerdidos, duracaoNanos);
+            } catch (RuntimeException ignored) {
+            }
+        }
+
+        void esticar(int fator) {
+            esticamento = fator;
+            periodoNanos = periodoBaseNanos * fator;
+            try {
+                listener.onRateChange(grupo, TimeUnit.NANOSECONDS.toMillis(periodoNanos));
+            } catch (RuntimeException ignored) {
+            }
+        }
+
+        void status(PollListener.Status status, Exception erro) {
+            try {
+                listener.onStatus(grupo, status, erro);
+            } catch (RuntimeException ignored) {
+                // Listener com defeito não derruba o polling
+            }
+        }
+    }
+
+    // Operação avulsa na fila da sessão: prioridade e depois ordem de chegada
+    private static final class Pedido<T> implements Comparable<Pedido<?>> {
+        final PollGroup.Prioridade prioridade;
+        final long ordem;
+        final Operacao<T> operacao;
+        final CompletableFuture<T> resultado = new CompletableFuture<>();
+
+        Pedido(PollGroup.Prioridade prioridade, long ordem, Operacao<T> operacao) {
+            this.prioridade = prioridade;
+            this.ordem = ordem;
+            this.operacao = operacao;
+        }
+
+        void executar(PlcConnector connector) {
+            try {
+                resultado.complete(operacao.executar(connector));
+            } catch (Exception e) {
+                resultado.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public int compareTo(Pedido<?> outro) {
+            int cmp = prioridade.compareTo(outro.prioridade);
+            return cmp != 0 ? cmp : Long.compare(ordem, outro.ordem);
+        }
+    }
+
+    private final class Sessao implements Runnable {
+        final String ip;
+        final int port;
+        final int rack;
+        final int slot;
+        final String chave;
+        final List<Agendamento> agendamentos = new CopyOnWriteArrayList<>();
+        final PriorityBlockingQueue<Pedido<?>> pedidos = new PriorityBlockingQueue<>();
+        private final AtomicLong sequencia = new AtomicLong();
+        final PlcMetrics metrics;
+        final ReconnectPolicy politica;
+        final boolean comReserva;
+
+        // Escrito e usado só pelo thread da sessão; volatile para isConectado
+        volatile PlcConnector connector;
+        volatile boolean rodando = true;
+        private volatile Thread thread;
+
+        // Conexão reserva: aberta e testada pelo thread da reserva, tomada pelo da sessão
+        private final Object reservaLock = new Object();
+        private PlcConnector reserva;
+        private Thread threadReserva;
+
+        // Conexão nova (ou reserva) ainda sem ciclo completo: o sucesso só conta depois dele
+        private boolean confirmar;
+
+        // Tempo gasto com pedidos urgentes no ciclo em andamento
+        private long nanosPedidos;
+
+        // Incrementa a cada conexão: os planos são recompilados com o PDU da nova sessão
+        private int geracao;
+        private long proximaAvaliacaoNanos = System.nanoTime() + AVALIACAO_CARGA_NANOS;
+
+        Sessao(String ip, int port, int rack, int slot, String chave) {
+            this.ip = ip;
+            this.port = port;
+            this.rack = rack;
+            this.slot = slot;
+            this.chave = chave;
+            this.metrics = PlcMetrics.forPlc(ip, port);
+            this.politica = ReconnectPolicy.forPlc(ip, port);
+            this.comReserva = standby;
+        }
+
+        void adicionar(Agendamento a) {
+            agendamentos.add(a);
+            if (thread == null) {
+                thread = novaThread("poll-" + chave, this);
+                thread.start();
+                if (comReserva) {
+                    threadReserva = novaThread("poll-standby-" + chave, this::manterReserva);
+                    threadReserva.start();
+                }
+            } else {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        // Retorna true quando a sessão ficou sem grupos (e foi encerrada)
+        boolean remover(Agendamento a) {
+            if (!agendamentos.remove(a)) {
+                return false;
+            }
+            a.ativo = false;
+            a.status(PollListener.Status.PARADO, null);
+            if (agendamentos.isEmpty()) {
+                parar();
+                return true;
+            }
+            return false;
+        }
+
+        void parar() {
+            rodando = false;
+            for (Agendamento a : agendamentos) {
+                a.ativo = false;
+            }
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+            if (threadReserva != null) {
+                LockSupport.unpark(threadReserva);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (rodando) {
+                    if (connector == null && !conectar()) {
+                        continue;
+                    }
+                    atenderPedidos(null);
+
+                    Agendamento proximo = null;
+                    for (Agendamento a : agendamentos) {
+                        if (proximo == null || a.proximoNanos - proximo.proximoNanos < 0) {
+                            proximo = a;
+                        }
+                    }
+                    if (proximo == null) {
+                        esperar(TimeUnit.SECONDS.toNanos(1));
+                        continue;
+                    }
+
+                    long espera = proximo.proximoNanos - System.nanoTime();
+                    if (espera > 0) {
+                        // Acorda no prazo ou antes, se um grupo for adicionado/removido
+                        esperar(espera);
+                        continue;
+                    }
+
+                    try {
+                        executarCiclo(proximo);
+                        if (confirmar) {
+                            politica.sucesso();
+                            confirmar = false;
+                        }
+                    } catch (Exception e) {
+                        if (!rodando) break;
+                        metrics.reconexao();
+                        politica.falha();
+                        desconectar();
+                        if (!assumirReserva()) {
+                            falharPedidos(e);
+                            for (Agendamento a : agendamentos) {
+                                a.status(PollListener.Status.RECONECTANDO, e);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                desconectar();
+                falharPedidos(new Exception("Polling do CLP " + ip + " encerrado."));
+            }
+        }
+
+        // ------------------------------- Fila de pedidos -------------------------------
+        <T> Pedido<T> enviar(PollGroup.Prioridade prioridade, Operacao<T> operacao) throws Exception {
+            if (!rodando || connector == null) {
+                throw new Exception("Conexão não estabelecida com o CLP " + ip + ".");
+            }
+            Pedido<T> pedido = new Pedido<>(prioridade, sequencia.incrementAndGet(), operacao);
+            pedidos.add(pedido);
+            if ((!rodando || connector == null) && pedidos.remove(pedido)) {
+                // Caiu entre a verificação e o add: falharPedidos já passou e o pedido esperaria a reconexão
+                throw new Exception("Conexão não estabelecida com o CLP " + ip + ".");
+            }
+            // Vencido o prazo, sai da fila sem executar (atenderPedidos pula pedidos concluídos)
+            CompletableFuture.delayedExecutor(PRAZO_PEDIDO_MS, TimeUnit.MILLISECONDS)
+                    .execute(() -> {
+                        if (!pedido.resultado.isDone()) {
+                            pedido.resultado.completeExceptionally(semResposta());
+                        }
+                    });
+            LockSupport.unpark(thread); // acorda a sessão se estiver esperando o próximo prazo
+            return pedido;
+        }
+
+        Exception semResposta() {
+            return new Exception("CLP " + ip + " não atendeu a operação em " + PRAZO_PEDIDO_MS / 1000 + " s.");
+        }
+
+        PlcConnector conectado() throws Exception {
+            PlcConnector conn = connector;
+            if (conn == null) {
+                throw new Exception("Conexão não estabelecida com o CLP " + ip + ".");
+            }
+            return conn;
+        }
+
+        // Executa os pedidos na fila até a prioridade indicada (null = todos)
+        private void atenderPedidos(PollGroup.Prioridade ate) {
+            Pedido<?> p;
+            while ((p = pedidos.peek()) != null && (ate == null || p.prioridade.compareTo(ate) <= 0)) {
+                p = pedidos.poll();
+                if (p != null && !p.resultado.isDone()) {
+                    p.executar(connector);
+                }
+            }
+        }
+
+        // Entre dois PDUs de uma varredura: só os urgentes
+        private void atenderUrgentes() {
+            if (pedidos.isEmpty()) return;
+            long inicio = System.nanoTime();
+            atenderPedidos(PollGroup.Prioridade.ALTA);
+            nanosPedidos += System.nanoTime() - inicio;
+        }
+
+        private void falharPedidos(Exception causa) {
+            Pedido<?> p;
+            while ((p = pedidos.poll()) != null) {
+                p.resultado.completeExceptionally(causa);
+            }
+        }
+
+        // Nova conexão, respeitando o backoff/circuito; se não puder agora, espera e retorna false
+        private boolean conectar() {
+            if (!politica.permitir()) {
+                if (politica.getEstado() == ReconnectPolicy.Estado.ABERTO) {
+                    Exception aviso = politica.circuitoAberto();
+                    for (Agendamento a : agendamentos) {
+                        a.status(PollListener.Status.FALHA, aviso);
+                    }
+                }
+                esperar(TimeUnit.MILLISECONDS.toNanos(Math.max(1, politica.esperaMs())));
+                return false;
+            }
+
+            PlcConnector novo = novoConnector(ip, port, rack, slot);
+            try {
+                novo.connect();
+            } catch (Exception e) {
+                politica.falha();
+                falharPedidos(e);
+                for (Agendamento a : agendamentos) {
+                    a.status(PollListener.Status.FALHA, e);
+                }
+                return false;
+            }
+
+            connector = novo;
+            geracao++;
+            confirmar = true;
+            if (threadReserva != null) {
+                LockSupport.unpark(threadReserva);
+            }
+            long agora = System.nanoTime();
+            for (Agendamento a : agendamentos) {
+                a.proximoNanos = agora;
+                a.defasado = false;
+                a.status(PollListener.Status.CONECTADO, null);
+            }
+            return true;
+        }
+
+        private void executarCiclo(Agendamento a) throws Exception {
+            if (a.geracaoPlano != geracao) {
+                a.plano = planner.compile(a.grupo.tags(), connector.getPduLength());
+                a.geracaoPlano = geracao;
+            }
+
+            long inicio = System.nanoTime();
+            long timestamp = System.currentTimeMillis();
+            nanosPedidos = 0;
+            List<S7ReadResult> valores = a.plano.execute(connector, this::atenderUrgentes);
+            // Operações encaixadas na varredura não contam como duração do ciclo
+            long duracao = System.nanoTime() - inicio - nanosPedidos;
+            a.duracaoMediaNanos = a.duracaoMediaNanos == 0 ? duracao : a.duracaoMediaNanos * 0.8 + duracao * 0.2;
+
+            if (a.ativo) {
+                try {
+                    a.listener.onResult(new PollResult(a.grupo, valores, timestamp, duracao));
+                } catch (RuntimeException ignored) {
+                    // Listener com defeito não derruba o polling
+                }
+            }
+
+            // Próximo prazo fixo; prazos que já passaram são pulados
+            long agora = System.nanoTime();
+            int perdidos = 0;
+            if (!a.defasado) {
+                a.proximoNanos = defasar(a, agora);
+                a.defasado = true;
+            } else {
+                a.proximoNanos += a.periodoNanos;
+                if (a.proximoNanos - agora <= 0) {
+                    long atraso = (agora - a.proximoNanos) / a.periodoNanos + 1;
+                    a.proximoNanos += atraso * a.periodoNanos;
+                    perdidos = (int) Math.min(Integer.MAX_VALUE, atraso);
+                    a.atrasou = true;
+                    a.overrun(perdidos, duracao);
+                }
+            }
+            metrics.ciclo(duracao, perdidos > 0);
+
+            if (agora - proximaAvaliacaoNanos >= 0) {
+                avaliarCarga();
+                proximaAvaliacaoNanos = agora + AVALIACAO_CARGA_NANOS;
+            }
+        }
+
+        /**
+         * Primeiro prazo de um grupo recém-iniciado (ou reconectado): o ponto do
+         * seu período mais distante dos prazos dos outros grupos da sessão.
+         * Grupos mais rápidos contam uma vez por repetição dentro do período.
+         */
+        private long defasar(Agendamento a, long agora) {
+            long periodo = a.periodoNanos;
+            long[] pontos = new long[MAX_PONTOS_FASE];
+            int n = 0;
+            for (Agendamento b : agendamentos) {
+                if (b == a || !b.defasado) continue;
+                for (long k = 0; k < periodo && n < pontos.length; k += b.periodoNanos) {
+                    pontos[n++] = Math.floorMod(b.proximoNanos + k - agora, periodo);
+                }
+            }
+            if (n == 0) {
+                return agora + periodo;
+            }
+
+            // Maior vão entre prazos vizinhos (circular) e o meio dele
+            Arrays.sort(pontos, 0, n);
+            long inicioVao = pontos[n - 1];
+            long maiorVao = pontos[0] + periodo - pontos[n - 1];
+            for (int i = 1; i < n; i++) {
+                long vao = pontos[i] - pontos[i - 1];
+                if (vao > maiorVao) {
+                    maiorVao = vao;
+                    inicioVao = pontos[i - 1];
+                }
+            }
+            long fase = Math.floorMod(inicioVao + maiorVao / 2, periodo);
+            return agora + (fase == 0 ? periodo : fase);
+        }
+
+        /**
+         * Carga = soma de (duração média do ciclo / período) dos grupos. Saturada
+         * (acima de CARGA_MAXIMA, ou com prazos perdidos e acima de CARGA_LIVRE):
+         * dobra o período do grupo de menor prioridade (o mais rápido, no empate).
+         * Abaixo de CARGA_LIVRE: devolve metade do esticamento ao grupo de maior
+         * prioridade, se a carga estimada continuar abaixo do máximo.
+         */
+        private void avaliarCarga() {
+            double carga = 0;
+            boolean atraso = false;
+            for (Agendamento a : agendamentos) {
+                carga += a.duracaoMediaNanos / a.periodoNanos;
+                atraso |= a.atrasou;
+                a.atrasou = false;
+            }
+
+            if (carga > CARGA_MAXIMA || (atraso && carga > CARGA_LIVRE)) {
+                Agendamento alvo = null;
+                for (Agendamento a : agendamentos) {
+                    if (a.grupo.prioridade() == PollGroup.Prioridade.ALTA || a.esticamento >= ESTICAMENTO_MAXIMO) {
+                        continue;
+                    }
+                    int cmp = alvo == null ? 1 : a.grupo.prioridade().compareTo(alvo.grupo.prioridade());
+                    if (cmp > 0 || (cmp == 0 && a.periodoNanos < alvo.periodoNanos)) {
+                        alvo = a;
+                    }
+                }
+                if (alvo != null) {
+                    alvo.esticar(alvo.esticamento * 2);
+                }
+            } else if (carga < CARGA_LIVRE) {
+                Agendamento alvo = null;
+                for (Agendamento a : agendamentos) {
+                    if (a.esticamento == 1) continue;
+                    if (alvo == null || a.grupo.prioridade().compareTo(alvo.grupo.prioridade()) < 0) {
+                        alvo = a;
+                    }
+                }
+                if (alvo != null) {
+                    double acrescimo = alvo.duracaoMediaNanos / alvo.periodoNanos; // período pela metade: o dobro
+                    if (carga + acrescimo < CARGA_MAXIMA) {
+                        alvo.esticar(alvo.esticamento / 2);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Failover: passa o polling para a conexão reserva. Prazos e fases dos
+         * grupos são mantidos; o ciclo que falhou já está vencido e é repetido
+         * na próxima volta do loop.
+         */
+        private boolean assumirReserva() {
+            PlcConnector r;
+            synchronized (reservaLock) {
+                r = reserva;
+                reserva = null;
+            }
+            if (r == null) {
+                return false;
+            }
+            if (!r.isConnected()) {
+                fechar(r);
+                return false;
+            }
+
+            connector = r;
+            geracao++;
+            confirmar = true;
+            metrics.failover();
+            LockSupport.unpark(threadReserva); // abre outra reserva
+            return true;
+        }
+
+        // Thread da reserva: abre a conexão enquanto a principal está de pé e a testa periodicamente
+        private void manterReserva() {
+            long proximaProva = 0;
+            int falhasReserva = 0;
+            try {
+                while (rodando) {
+                    boolean temReserva;
+                    synchronized (reservaLock) {
+                        temReserva = reserva != null;
+                    }
+
+                    if (!temReserva) {
+                        // Só com a principal conectada e o circuito fechado, para não disputar a reconexão
+                        if (connector == null || politica.getEstado() != ReconnectPolicy.Estado.FECHADO
+                                || politica.esperaMs() > 0) {
+                            esperar(ESPERA_RESERVA_NANOS);
+                            continue;
+                        }
+                        PlcConnector nova = novoConnector(ip, port, rack, slot);
+                        try {
+                            nova.connect();
+                        } catch (Exception e) {
+                            // Backoff só da reserva: sem slot livre na CPU com a principal de pé, o
+                            // circuito do CLP (usado pela reconexão e pelo PlcSessionManager) não abre
+                            falhasReserva++;
+                            esperar(Math.max(ESPERA_RESERVA_NANOS,
+                                    TimeUnit.MILLISECONDS.toNanos(ReconnectPolicy.espera(falhasReserva + 1))));
+                            continue;
+                        }
+                        falhasReserva = 0;
+                        synchronized (reservaLock) {
+                            if (rodando) {
+                                reserva = nova;
+                                nova = null;
+                            }
+                        }
+                        fechar(nova);
+                        proximaProva = System.nanoTime() + PROVA_RESERVA_NANOS;
+                        continue;
+                    }
+
+                    long falta = proximaProva - System.nanoTime();
+                    if (falta > 0) {
+                        esperar(falta);
+                        continue;
+                    }
+                    // Read Var mínimo: mantém a conexão viva e detecta reserva morta antes de precisar dela.
+                    // A prova roda fora do lock (um round trip): um failover nesse meio tempo não espera
+                    // por ela, só reconecta pelo caminho normal
+                    PlcConnector emProva;
+                    synchronized (reservaLock) {
+                        emProva = reserva;
+                        reserva = null;
+                    }
+                    if (emProva != null) {
+                        try {
+                            emProva.readMulti(List.of(S7ReadItem.ofByte(1, 0)));
+                            synchronized (reservaLock) {
+                                if (rodando && reserva == null) {
+                                    reserva = emProva;
+                                    emProva = null;
+                                }
+                            }
+                        } catch (Exception e) {
+                            // reserva morta: fechada abaixo, outra é aberta na próxima volta
+                        }
+                        fechar(emProva);
+                    }
+                    proximaProva = System.nanoTime() + PROVA_RESERVA_NANOS;
+                }
+            } finally {
+                synchronized (reservaLock) {
+                    fechar(reserva);
+                    reserva = null;
+                }
+            }
+        }
+
+        private static void fechar(PlcConnector c) {
+            if (c == null) return;
+            try {
+                c.disconnect();
+            } catch (Exception ignored) {}
+        }
+
+        private void esperar(long nanos) {
+            if (rodando) {
+                LockSupport.parkNanos(this, nanos);
+            }
+        }
+
+        private void desconectar() {
+            try {
+                if (connector != null) connector.disconnect();
+            } catch (Exception ignored) {}
+            connector = null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.io.Closeable;
+import java.util.Properties;
+
+/**
+ * Destino dos resultados do PollDaemon (log, histórico, métricas, ...).
+ *
+ * O daemon pede um listener por grupo e repassa a ele todos os ciclos.
+ * Sinks de terceiros entram pelo nome da classe em "sinks=" no arquivo de
+ * configuração; a classe precisa de um construtor público (Properties).
+ */
+public interface PollSink extends Closeable {
+
+    PollListener listener(PollGroup grupo) throws Exception;
+
+    @Override
+    default void close() {
+    }
+
+    // Sinks embutidos pelo nome; qualquer outro nome é tratado como classe
+    static PollSink create(String nome, Properties config) throws Exception {
+        return switch (nome) {
+            case "log" -> new LogSink(config);
+            case "historian" -> HistorianSink.sink(config);
+            case "metrics" -> new MetricsSink(config);
+            default -> {
+                try {
+                    Class<?> classe = Class.forName(nome);
+                    yield (PollSink) classe.getConstructor(Properties.class).newInstance(config);
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new Exception("Sink desconhecido ou inválido: " + nome + " (" + e + ")");
+                }
+            }
+        };
+    }
+}
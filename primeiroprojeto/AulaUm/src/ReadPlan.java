@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plano de leitura compilado pelo ReadPlanner: a lista mínima de blocos a ler
+ * e, para cada tag, onde o seu valor está dentro do bloco.
+ */
+public class ReadPlan {
+
+    private final List<S7ReadItem> tags;
+    private final List<S7ReadItem> blocos;
+    private final int[] blocoDoTag;
+    private final int[] offsetNoBloco;
+
+    // Blocos divididos em jobs para o PDU de pduJobs (execute com entreJobs)
+    private List<List<S7ReadItem>> jobs;
+    private int pduJobs;
+
+    ReadPlan(List<S7ReadItem> tags, List<S7ReadItem> blocos, int[] blocoDoTag, int[] offsetNoBloco) {
+        this.tags = tags;
+        this.blocos = blocos;
+        this.blocoDoTag = blocoDoTag;
+        this.offsetNoBloco = offsetNoBloco;
+    }
+
+    public List<S7ReadItem> getTags() {
+        return tags;
+    }
+
+    public List<S7ReadItem> getBlocos() {
+        return blocos;
+    }
+
+    /**
+     * Lê todos os blocos (em lote, via readMulti) e recorta o valor de cada tag.
+     * O resultado segue a ordem dos tags passados ao planejador; se um bloco
+     * falhar, apenas os tags daquele bloco recebem o erro.
+     */
+    public List<S7ReadResult> execute(PlcConnector connector) throws Exception {
+        return slice(connector.readMulti(blocos));
+    }
+
+    /**
+     * Como execute, mas um Read Var (um PDU) por vez, chamando entreJobs entre
+     * eles: o dono da conexão pode encaixar requisições urgentes no meio de
+     * uma varredura longa.
+     */
+    public List<S7ReadResult> execute(PlcConnector connector, Runnable entreJobs) throws Exception {
+        int pdu = connector.getPduLength();
+        if (jobs == null || pduJobs != pdu) {
+            jobs = S7ProtocolClient.planMultiRead(blocos, pdu);
+            pduJobs = pdu;
+        }
+
+        List<S7ReadResult> porJob = new ArrayList<>(blocos.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            if (i > 0) {
+                entreJobs.run();
+            }
+            porJob.addAll(connector.readMulti(jobs.get(i)));
+        }
+        return slice(S7ProtocolClient.alignResults(blocos, porJob));
+    }
+
+    public List<S7ReadResult> slice(List<S7ReadResult> resultadosBlocos) {
+        List<S7ReadResult> resultados = new ArrayList<>(tags.size());
+
+        for (int i = 0; i < tags.size(); i++) {
+            S7ReadItem tag = tags.get(i);
+            S7ReadResult bloco = resultadosBlocos.get(blocoDoTag[i]);
+
+            if (!bloco.isOk()) {
+                resultados.add(new S7ReadResult(tag, bloco.returnCode(), new byte[0]));
+                continue;
+            }
+
+            byte[] dados = new byte[tag.responseDataLength()];
+            System.arraycopy(bloco.data(), offsetNoBloco[i], dados, 0, dados.length);
+            if (tag.isBit()) {
+                // Bloco traz o byte inteiro; o resultado BIT traz só o bit em 0x01
+                dados[0] = (byte) ((dados[0] >> (tag.bit() & 0x07)) & 0x01);
+            }
+            resultados.add(new S7ReadResult(tag, bloco.returnCode(), dados));
+        }
+        return resultados;
+    }
+}
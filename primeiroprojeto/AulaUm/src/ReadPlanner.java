@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Planejador de leituras: agrupa tags próximas do mesmo DB em leituras de bloco.
+ *
+ * Dois tags entram no mesmo bloco quando o "buraco" entre eles é menor ou igual
+ * a maxGap bytes e o bloco resultante ainda cabe na resposta de um PDU. O plano
+ * é compilado uma vez (ao iniciar o polling) e reaproveitado a cada ciclo.
+ */
+public class ReadPlanner {
+
+    // Cabeçalho S7 Ack_Data (12) + parâmetros (2) + cabeçalho do item (4)
+    private static final int OVERHEAD_RESPOSTA = 18;
+
+    private final int maxGap;
+
+    public ReadPlanner(int maxGap) {
+        if (maxGap < 0) {
+            throw new IllegalArgumentException("O gap máximo não pode ser negativo.");
+        }
+        this.maxGap = maxGap;
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    public ReadPlan compile(List<S7ReadItem> tags, int pduLength) {
+        int maxBloco = pduLength - OVERHEAD_RESPOSTA;
+
+        // Índices dos tags ordenados por DB e offset (o plano devolve na ordem original)
+        List<Integer> ordem = new ArrayList<>(tags.size());
+        for (int i = 0; i < tags.size(); i++) ordem.add(i);
+        ordem.sort(Comparator.<Integer>comparingInt(i -> tags.get(i).db())
+                .thenComparingInt(i -> tags.get(i).offset()));
+
+        List<S7ReadItem> blocos = new ArrayList<>();
+        int[] blocoDoTag = new int[tags.size()];
+        int[] offsetNoBloco = new int[tags.size()];
+
+        int db = -1, inicio = 0, fim = 0; // fim exclusivo
+        List<Integer> membros = new ArrayList<>();
+
+        for (int idx : ordem) {
+            S7ReadItem tag = tags.get(idx);
+            int tagFim = tag.offset() + tag.responseDataLength();
+
+            boolean mesmoBloco = !membros.isEmpty()
+                    && tag.db() == db
+                    && tag.offset() <= fim + maxGap
+                    && Math.max(fim, tagFim) - inicio <= maxBloco;
+
+            if (!mesmoBloco) {
+                fecharBloco(blocos, membros, db, inicio, fim, tags, blocoDoTag, offsetNoBloco);
+                membros.clear();
+                db = tag.db();
+                inicio = tag.offset();
+                fim = tagFim;
+            } else {
+                fim = Math.max(fim, tagFim);
+            }
+            membros.add(idx);
+        }
+        fecharBloco(blocos, membros, db, inicio, fim, tags, blocoDoTag, offsetNoBloco);
+
+        return new ReadPlan(List.copyOf(tags), blocos, blocoDoTag, offsetNoBloco);
+    }
+
+    private static void fecharBloco(List<S7ReadItem> blocos, List<Integer> membros, int db, int inicio, int fim,
+                                    List<S7ReadItem> tags, int[] blocoDoTag, int[] offsetNoBloco) {
+        if (membros.isEmpty()) return;
+
+        int indice = blocos.size();
+        blocos.add(S7ReadItem.block(db, inicio, fim - inicio));
+        for (int idx : membros) {
+            blocoDoTag[idx] = indice;
+            offsetNoBloco[idx] = tags.get(idx).offset() - inicio;
+        }
+    }
+}
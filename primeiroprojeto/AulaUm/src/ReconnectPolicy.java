@@ -0,0 +1,116 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Política de reconexão por CLP (ip:porta), compartilhada pelo PollScheduler
+ * e pelo PlcSessionManager.
+ *
+ *   • Backoff exponencial com jitter: a primeira tentativa depois de uma queda
+ *     é imediata; as seguintes esperam entre metade e o total de
+ *     ESPERA_INICIAL_MS × 2^n, até ESPERA_MAXIMA_MS
+ *   • Circuit breaker: FALHAS_PARA_ABRIR falhas seguidas abrem o circuito e
+ *     ninguém tenta conectar por CIRCUITO_ABERTO_MS; depois disso uma única
+ *     tentativa de prova (MEIO_ABERTO) decide se fecha ou abre de novo
+ *
+ * O jitter evita que vários painéis/serviços voltem todos no mesmo instante
+ * quando o CLP reinicia.
+ */
+public final class ReconnectPolicy {
+
+    public enum Estado { FECHADO, ABERTO, MEIO_ABERTO }
+
+    static final long ESPERA_INICIAL_MS = 250;
+    static final long ESPERA_MAXIMA_MS = 30_000;
+    static final int FALHAS_PARA_ABRIR = 8;
+    static final long CIRCUITO_ABERTO_MS = 60_000;
+
+    private static final Map<String, ReconnectPolicy> POR_PLC = new ConcurrentHashMap<>();
+
+    private final String plc;
+    private final PlcMetrics metrics;
+
+    private Estado estado = Estado.FECHADO;
+    private int falhas;
+    private long liberadoEmMs;  // antes disso nenhuma tentativa é permitida
+
+    private ReconnectPolicy(String plc, PlcMetrics metrics) {
+        this.plc = plc;
+        this.metrics = metrics;
+    }
+
+    public static ReconnectPolicy forPlc(String ip, int port) {
+        return POR_PLC.computeIfAbsent(ip + ":" + port, k -> new ReconnectPolicy(k, PlcMetrics.forPlc(ip, port)));
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public synchronized int getFalhas() {
+        return falhas;
+    }
+
+    // Milissegundos até a próxima tentativa ser permitida (0 = já pode)
+    public synchronized long esperaMs() {
+        return Math.max(0, liberadoEmMs - System.currentTimeMillis());
+    }
+
+    /**
+     * Reserva uma tentativa de conexão. Com o circuito aberto só a primeira
+     * chamada depois do prazo passa (prova); as demais recebem false até a
+     * prova terminar com sucesso() ou falha().
+     */
+    public synchronized boolean permitir() {
+        long agora = System.currentTimeMillis();
+        if (agora < liberadoEmMs) {
+            return false;
+        }
+        if (estado != Estado.FECHADO) {
+            // Prova única; se quem provou sumir sem avisar, outra prova após o mesmo prazo
+            mudar(Estado.MEIO_ABERTO);
+            liberadoEmMs = agora + CIRCUITO_ABERTO_MS;
+        }
+        return true;
+    }
+
+    public synchronized void sucesso() {
+        falhas = 0;
+        liberadoEmMs = 0;
+        mudar(Estado.FECHADO);
+    }
+
+    public synchronized void falha() {
+        falhas++;
+        long agora = System.currentTimeMillis();
+        if (estado == Estado.MEIO_ABERTO || falhas >= FALHAS_PARA_ABRIR) {
+            mudar(Estado.ABERTO);
+            liberadoEmMs = agora + CIRCUITO_ABERTO_MS;
+            return;
+        }
+        liberadoEmMs = agora + espera(falhas);
+    }
+
+    // Exceção para quem pediu uma conexão com o circuito aberto
+    public Exception circuitoAberto() {
+        return new Exception("CLP " + plc + " indisponível após " + getFalhas()
+                + " falhas seguidas: nova tentativa em " + (esperaMs() + 999) / 1000 + " s.");
+    }
+
+    // Espera depois da n-ésima falha seguida: a primeira não espera (queda transitória)
+    static long espera(int falhas) {
+        if (falhas <= 1) {
+            return 0;
+        }
+        long teto = ESPERA_INICIAL_MS << Math.min(falhas - 2, 16);
+        teto = Math.min(teto, ESPERA_MAXIMA_MS);
+        return teto / 2 + ThreadLocalRandom.current().nextLong(teto / 2 + 1);
+    }
+
+    private void mudar(Estado novo) {
+        if (estado != novo) {
+            estado = novo;
+            metrics.circuito(novo.name());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Conexão S7 que aceita jobs sem bloquear: frame TPKT completo na ida, frame
+ * de resposta no futuro, vários jobs em voo (até max AmQ called).
+ *
+ * Implementada sobre o socket bloqueante do S7ProtocolClient
+ * (S7PipelinedSession) e sobre o transporte NIO (S7NioSession); o
+ * PlcConnector usa qualquer uma das duas. Cancelar (ou expirar) um futuro
+ * devolvido aqui cancela os jobs de origem.
+ */
+public interface S7AsyncSession extends Closeable {
+
+    CompletableFuture<byte[]> submit(byte[] packet);
+
+    int getPduLength();
+
+    int getMaxAmqCalled();
+
+    boolean isAberta();
+
+    @Override
+    void close();
+
+    // Um item; a resposta é conferida (cabeçalho, return code, tamanho) antes de converter
+    default CompletableFuture<Object> read(int db, int offset, int bit, int size, String type) {
+        CompletableFuture<byte[]> job = submit(S7ProtocolClient.createReadRequest(db, offset, bit, size, type));
+        CompletableFuture<Object> valor = job.thenApply(frame -> {
+            try {
+                return S7ProtocolClient.decodeReadResponse(frame, db, offset, size, type);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        propagarFalha(valor, List.of(job));
+        return valor;
+    }
+
+    default CompletableFuture<Boolean> write(int db, int offset, int bit, int size, String type, Object value) {
+        CompletableFuture<byte[]> job = submit(S7ProtocolClient.createWriteRequest(db, offset, bit, size, type, value));
+        CompletableFuture<Boolean> ok = job.thenApply(frame -> S7ProtocolClient.writeAckOk(frame, frame.length));
+        propagarFalha(ok, List.of(job));
+        return ok;
+    }
+
+    // Leitura em lote: os jobs de planMultiRead são enviados todos em sequência, sem esperar respostas
+    default CompletableFuture<List<S7ReadResult>> readMulti(List<S7ReadItem> itens) {
+        List<List<S7ReadItem>> jobs = S7ProtocolClient.planMultiRead(itens, getPduLength());
+        List<CompletableFuture<byte[]>> enviados = new ArrayList<>(jobs.size());
+        List<CompletableFuture<List<S7ReadResult>>> futuros = new ArrayList<>(jobs.size());
+
+        for (List<S7ReadItem> job : jobs) {
+            CompletableFuture<byte[]> enviado = submit(S7ProtocolClient.createMultiReadRequest(job));
+            enviados.add(enviado);
+            futuros.add(enviado.thenApply(frame ->
+                    S7ProtocolClient.parseMultiReadResponse(frame, frame.length, job)));
+        }
+
+        CompletableFuture<List<S7ReadResult>> resultado =
+                CompletableFuture.allOf(futuros.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                    List<S7ReadResult> porJob = new ArrayList<>(itens.size());
+                    for (CompletableFuture<List<S7ReadResult>> f : futuros) {
+                        porJob.addAll(f.join());
+                    }
+                    return S7ProtocolClient.alignResults(itens, porJob);
+                });
+        propagarFalha(resultado, enviados);
+        return resultado;
+    }
+
+    // Escrita em lote: todos os jobs de Write Var em voo de uma vez
+    default CompletableFuture<List<S7WriteResult>> writeMulti(List<S7WriteItem> itens) {
+        S7ProtocolClient.WriteBatch lote = S7ProtocolClient.planWriteBatch(itens, getPduLength());
+        List<CompletableFuture<byte[]>> enviados = new ArrayList<>(lote.jobs().size());
+        List<CompletableFuture<List<S7WriteResult>>> futuros = new ArrayList<>(lote.jobs().size());
+
+        for (List<S7WriteItem> job : lote.jobs()) {
+            CompletableFuture<byte[]> enviado = submit(S7ProtocolClient.createMultiWriteRequest(job));
+            enviados.add(enviado);
+            futuros.add(enviado.thenApply(frame ->
+                    S7ProtocolClient.parseMultiWriteResponse(frame, frame.length, job)));
+        }
+
+        CompletableFuture<List<S7WriteResult>> resultado =
+                CompletableFuture.allOf(futuros.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                    List<S7WriteResult> porJob = new ArrayList<>();
+                    for (CompletableFuture<List<S7WriteResult>> f : futuros) {
+                        porJob.addAll(f.join());
+                    }
+                    return lote.merge(porJob);
+                });
+        propagarFalha(resultado, enviados);
+        return resultado;
+    }
+
+    // Falha de um resultado derivado (cancelamento, orTimeout do chamador) cancela os jobs de origem
+    static void propagarFalha(CompletableFuture<?> resultado, List<? extends CompletableFuture<?>> origens) {
+        resultado.whenComplete((r, e) -> {
+            if (e != null) {
+                for (CompletableFuture<?> f : origens) {
+                    f.completeExceptionally(e);
+                }
+            }
+        });
+    }
+}
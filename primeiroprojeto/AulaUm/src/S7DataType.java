@@ -0,0 +1,48 @@
+/**
+ * Tipos de variável suportados pelo cliente S7.
+ *
+ * Substitui as comparações de String ("integer", "float", ...) no caminho
+ * quente: o nome é convertido uma única vez, em of(), e daí em diante o
+ * despacho é feito pelo enum.
+ */
+public enum S7DataType {
+
+    BOOLEAN("boolean", 1),
+    BYTE("byte", 1),
+    INTEGER("integer", 2),
+    FLOAT("float", 4),
+    STRING("string", 0),
+    BLOCK("block", 0);
+
+    private final String nome;
+    // Tamanho fixo em bytes (0 = definido pela tag: string e block)
+    private final int tamanho;
+
+    S7DataType(String nome, int tamanho) {
+        this.nome = nome;
+        this.tamanho = tamanho;
+    }
+
+    // Nome usado na API baseada em String (sendReadRequest, S7ReadItem)
+    public String getNome() {
+        return nome;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    public static S7DataType of(String type) {
+        for (S7DataType t : values()) {
+            if (t.nome.equalsIgnoreCase(type)) {
+                return t;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de variável não suportado: " + type);
+    }
+
+    // Transport size do item: BIT (0x01) só para boolean de 1 byte, senão BYTE (0x02)
+    int transportSize(int size) {
+        return this == BOOLEAN && size == 1 ? 0x01 : 0x02;
+    }
+}
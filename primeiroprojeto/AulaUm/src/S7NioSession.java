@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sessão S7 sobre o S7NioTransport.
+ *
+ * Todo o estado (fila de escrita, jobs em voo, buffer de leitura) é acessado só
+ * pelo thread de I/O dono da sessão; os métodos públicos apenas enfileiram
+ * tarefas nele. Jobs usam PDU reference único e até "max AmQ called" ficam em
+ * voo; os excedentes esperam na fila da sessão.
+ */
+public class S7NioSession implements S7AsyncSession {
+
+    private enum Estado { CONECTANDO, COTP, SETUP, PRONTA, FECHADA }
+
+    private final S7NioTransport transporte;
+    private final S7NioTransport.IoLoop loop;
+    private final String ip;
+    private final int port;
+    private final int rack;
+    private final int slot;
+    private final CompletableFuture<S7NioSession> pronta = new CompletableFuture<>();
+    private final PlcMetrics metrics;
+
+    // Estado abaixo: somente no thread de I/O
+    private volatile Estado estado = Estado.CONECTANDO;
+    private SocketChannel canal;
+    private SelectionKey key;
+    private ByteBuffer entrada = ByteBuffer.allocate(2048);
+    private final ArrayDeque<ByteBuffer> saida = new ArrayDeque<>();
+    private final ArrayDeque<Job> aguardando = new ArrayDeque<>();
+    private final Map<Integer, CompletableFuture<byte[]>> emVoo = new HashMap<>();
+    private int proximaReferencia = 1;
+
+    private volatile int pduLength = 240;
+    private volatile int maxAmqCalling = 1;
+    private volatile int maxAmqCalled = 1;
+
+    private record Job(byte[] packet, CompletableFuture<byte[]> futuro) {}
+
+    S7NioSession(S7NioTransport transporte, S7NioTransport.IoLoop loop, String ip, int port, int rack, int slot) {
+        this.transporte = transporte;
+        this.loop = loop;
+        this.ip = ip;
+        this.port = port;
+        this.rack = rack;
+        this.slot = slot;
+        this.metrics = PlcMetrics.forPlc(ip, port);
+    }
+
+    CompletableFuture<S7NioSession> pronta() {
+        return pronta;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    @Override
+    public int getPduLength() {
+        return pduLength;
+    }
+
+    public int getMaxAmqCalling() {
+        return maxAmqCalling;
+    }
+
+    @Override
+    public int getMaxAmqCalled() {
+        return maxAmqCalled;
+    }
+
+    @Override
+    public boolean isAberta() {
+        return pronta.isDone() && !pronta.isCompletedExceptionally() && estado != Estado.FECHADA;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // API de requisições
+    // --------------------------------------------------------------------------------------------
+    /**
+     * Envia um job (frame TPKT completo) e devolve o frame de resposta.
+     * Nunca bloqueia o chamador; o timeout vale a partir da submissão.
+     * Cancelado ou expirado, o job sai da fila ou libera a janela na hora.
+     */
+    @Override
+    public CompletableFuture<byte[]> submit(byte[] packet) {
+        CompletableFuture<byte[]> futuro = new CompletableFuture<>();
+        long inicio = System.nanoTime();
+        loop.executar(() -> enfileirar(new Job(packet, futuro)));
+
+        futuro.orTimeout(transporte.getTimeoutMs(), TimeUnit.MILLISECONDS).whenComplete((r, e) -> {
+            if (r != null) {
+                metrics.job(System.nanoTime() - inicio);
+                return;
+            }
+            if (e instanceof TimeoutException) {
+                metrics.timeout();
+            }
+            loop.executar(() -> expirar(futuro));
+        });
+        return futuro;
+    }
+
+    @Override
+    public void close() {
+        loop.executar(() -> fechar(new IOException("Sessão fechada.")));
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Máquina de estados (thread de I/O)
+    // --------------------------------------------------------------------------------------------
+    void iniciarConexao() {
+        try {
+            canal = SocketChannel.open();
+            canal.configureBlocking(false);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            boolean conectado = canal.connect(new InetSocketAddress(ip, port));
+            key = canal.register(loop.selector, conectado ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+            if (conectado) {
+                aoConectar();
+            }
+        } catch (IOException e) {
+            fechar(e);
+        } catch (RuntimeException e) {
+            // Ex.: UnresolvedAddressException (host inexistente): falha só esta sessão
+            fechar(new IOException("Falha ao conectar em " + ip + ": " + e, e));
+        }
+    }
+
+    void onSelected(SelectionKey k) {
+        try {
+            if (k.isConnectable()) {
+                canal.finishConnect();
+                k.interestOps(SelectionKey.OP_READ);
+                aoConectar();
+            }
+            if (k.isValid() && k.isReadable()) {
+                lerDisponivel();
+            }
+            if (k.isValid() && k.isWritable()) {
+                escreverPendentes();
+            }
+        } catch (Exception e) {
+            fechar(e instanceof IOException io ? io : new IOException(e.getMessage(), e));
+        }
+    }
+
+    private void aoConectar() {
+        estado = Estado.COTP;
+        enviar(S7ProtocolClient.createConnectionRequest(rack, slot));
+    }
+
+    private void enviar(byte[] frame) {
+        saida.add(ByteBuffer.wrap(frame));
+        if (key != null && key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void escreverPendentes() throws IOException {
+        while (!saida.isEmpty()) {
+            ByteBuffer b = saida.peek();
+            metrics.enviado(canal.write(b));
+            if (b.hasRemaining()) {
+                return; // socket cheio: continua quando ficar gravável de novo
+            }
+            saida.poll();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    // Leitura com framing TPKT: só processa frames completos
+    private void lerDisponivel() throws Exception {
+        int n = canal.read(entrada);
+        if (n < 0) {
+            throw new IOException("Conexão encerrada pelo CLP.");
+        }
+        metrics.recebido(n);
+        entrada.flip();
+        while (entrada.remaining() >= 4) {
+            int inicio = entrada.position();
+            if (entrada.get(inicio) != 0x03) {
+                throw new IOException("Cabeçalho TPKT inválido.");
+            }
+            int tamanho = ((entrada.get(inicio + 2) & 0xFF) << 8) | (entrada.get(inicio + 3) & 0xFF);
+            if (tamanho < 7) {
+                throw new IOException("Tamanho de frame TPKT inválido: " + tamanho);
+            }
+            if (tamanho > entrada.capacity()) {
+                // Frame maior que o buffer: aumenta e espera o restante
+                ByteBuffer maior = ByteBuffer.allocate(tamanho);
+                maior.put(entrada);
+                entrada = maior;
+                return;
+            }
+            if (entrada.remaining() < tamanho) {
+                break;
+            }
+            byte[] frame = new byte[tamanho];
+            entrada.get(frame);
+            aoReceberFrame(frame);
+        }
+        entrada.compact();
+    }
+
+    private void aoReceberFrame(byte[] frame) throws Exception {
+        switch (estado) {
+            case COTP -> {
+                if ((frame[5] & 0xFF) != 0xD0) {
+                    throw new IOException("CLP recusou a conexão COTP.");
+                }
+                estado = Estado.SETUP;
+                enviar(S7ProtocolClient.createSetupCommunication(transporte.getRequestedPduLength()));
+            }
+            case SETUP -> {
+                S7ProtocolClient.SetupAck ack = S7ProtocolClient.parseSetupCommunicationAck(frame, frame.length);
+                pduLength = ack.pduLength();
+                maxAmqCalling = Math.max(1, ack.maxAmqCalling());
+                maxAmqCalled = Math.max(1, ack.maxAmqCalled());
+                estado = Estado.PRONTA;
+                metrics.conexao();
+                pronta.complete(this);
+                despachar();
+            }
+            case PRONTA -> {
+                if (frame.length < 13) return;
+                int ref = ((frame[11] & 0xFF) << 8) | (frame[12] & 0xFF);
+                CompletableFuture<byte[]> futuro = emVoo.remove(ref);
+                if (futuro != null) {
+                    futuro.complete(frame);
+                }
+                despachar();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void enfileirar(Job job) {
+        if (estado == Estado.FECHADA) {
+            job.futuro().completeExceptionally(new IOException("Sessão com " + ip + " encerrada."));
+            return;
+        }
+        aguardando.add(job);
+        despachar();
+    }
+
+    // Libera jobs da fila enquanto houver espaço na janela de max AmQ
+    private void despachar() {
+        if (estado != Estado.PRONTA) return;
+
+        while (emVoo.size() < maxAmqCalled && !aguardando.isEmpty()) {
+            Job job = aguardando.poll();
+            if (job.futuro().isDone()) continue; // expirou ou foi cancelado na fila
+
+            int ref = proximaReferencia;
+            do {
+                proximaReferencia = proximaReferencia == 0xFFFF ? 1 : proximaReferencia + 1;
+            } while (emVoo.containsKey(proximaReferencia));
+
+            S7ProtocolClient.stampPduReference(job.packet(), ref);
+            emVoo.put(ref, job.futuro());
+            enviar(job.packet());
+        }
+    }
+
+    // Timeout ou cancelamento: tira o job da janela (resposta tardia será descartada)
+    private void expirar(CompletableFuture<byte[]> futuro) {
+        Iterator<CompletableFuture<byte[]>> it = emVoo.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() == futuro) {
+                it.remove();
+                break;
+            }
+        }
+        aguardando.removeIf(j -> j.futuro() == futuro);
+        despachar();
+    }
+
+    void fechar(IOException causa) {
+        if (estado == Estado.FECHADA) return;
+        estado = Estado.FECHADA;
+
+        if (key != null) key.cancel();
+        try {
+            if (canal != null) canal.close();
+        } catch (IOException ignored) {}
+
+        // Esvazia antes de completar: o whenComplete de submit chama expirar neste mesmo thread
+        List<CompletableFuture<byte[]>> pendentes = new ArrayList<>(emVoo.values());
+        for (Job j : aguardando) pendentes.add(j.futuro());
+        emVoo.clear();
+        aguardando.clear();
+        saida.clear();
+
+        IOException erro = new IOException("Sessão com " + ip + " encerrada: " + causa.getMessage(), causa);
+        pronta.completeExceptionally(erro);
+        for (CompletableFuture<byte[]> f : pendentes) f.completeExceptionally(erro);
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transporte não bloqueante (SocketChannel + Selector) para muitos CLPs.
+ *
+ * Alternativa ao socket bloqueante do S7ProtocolClient: poucos threads de I/O
+ * atendem centenas de sessões S7NioSession. Os frames são montados e
+ * decodificados pelas mesmas funções estáticas do S7ProtocolClient.
+ *
+ * Uso direto ou como transporte do PlcConnector (setTransport), e por ele do
+ * PollScheduler e do PlcSessionManager:
+ *   S7NioTransport transporte = new S7NioTransport(2);
+ *   S7NioSession plc = transporte.open("10.74.241.10", 102).get();
+ *   plc.readMulti(itens).thenAccept(...);
+ *
+ *   agendador.setTransport(transporte);   // cada CLP do polling numa sessão NIO
+ */
+public class S7NioTransport implements Closeable {
+
+    private final IoLoop[] loops;
+    private final AtomicInteger proximoLoop = new AtomicInteger();
+
+    private volatile int requestedPduLength = 960;
+    private volatile long timeoutMs = 5000;
+
+    public S7NioTransport(int ioThreads) throws IOException {
+        loops = new IoLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop("s7-nio-" + i);
+        }
+    }
+
+    public void setRequestedPduLength(int requestedPduLength) {
+        this.requestedPduLength = requestedPduLength;
+    }
+
+    int getRequestedPduLength() {
+        return requestedPduLength;
+    }
+
+    // Timeout de cada requisição e também do handshake (TCP + COTP + Setup Communication)
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Abre uma sessão de forma assíncrona; o futuro completa quando o Setup
+     * Communication for confirmado pelo CLP.
+     */
+    public CompletableFuture<S7NioSession> open(String ip, int port) {
+        return open(ip, port, 0, 1);
+    }
+
+    public CompletableFuture<S7NioSession> open(String ip, int port, int rack, int slot) {
+        IoLoop loop = loops[Math.floorMod(proximoLoop.getAndIncrement(), loops.length)];
+        S7NioSession sessao = new S7NioSession(this, loop, ip, port, rack, slot);
+        loop.executar(sessao::iniciarConexao);
+
+        CompletableFuture<S7NioSession> pronta = sessao.pronta();
+        pronta.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((s, e) -> {
+            if (e != null) sessao.close();
+        });
+        return pronta;
+    }
+
+    @Override
+    public void close() {
+        for (IoLoop loop : loops) {
+            loop.fechar();
+        }
+    }
+
+    // ------------------------------- Thread de I/O -------------------------------
+    static final class IoLoop implements Runnable {
+        final Selector selector;
+        private final Queue<Runnable> tarefas = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private volatile boolean rodando = true;
+
+        IoLoop(String nome) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, nome);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        // Tudo que mexe no estado das sessões roda no thread de I/O
+        void executar(Runnable tarefa) {
+            if (Thread.currentThread() == thread) {
+                tarefa.run();
+                return;
+            }
+            tarefas.add(tarefa);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (rodando) {
+                try {
+                    selector.select();
+                    Runnable r;
+                    while ((r = tarefas.poll()) != null) {
+                        try {
+                            r.run();
+                        } catch (RuntimeException e) {
+                            // Tarefa com defeito não pode parar o thread que atende as outras sessões
+                        }
+                    }
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        S7NioSession sessao = (S7NioSession) key.attachment();
+                        if (key.isValid()) {
+                            try {
+                                sessao.onSelected(key);
+                            } catch (RuntimeException e) {
+                                sessao.fechar(new IOException("Erro na sessão: " + e, e));
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    // Selector com problema: as sessões individuais tratam os próprios erros
+                }
+            }
+
+            for (SelectionKey key : selector.keys()) {
+                ((S7NioSession) key.attachment()).fechar(new IOException("Transporte encerrado."));
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+
+        void fechar() {
+            rodando = false;
+            selector.wakeup();
+        }
+    }
+}
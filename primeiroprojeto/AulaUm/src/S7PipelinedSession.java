@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Modo pipeline sobre uma conexão S7 já estabelecida.
+ *
+ * Cada job recebe um PDU reference único e até "max AmQ called" jobs ficam em
+ * voo ao mesmo tempo na mesma conexão. Um thread leitor recebe os frames e
+ * devolve cada resposta ao chamador pelo PDU reference. Em links com latência
+ * alta isso multiplica a vazão sem abrir mais sockets.
+ *
+ * submit nunca bloqueia: com a janela cheia o job espera numa fila e é
+ * enviado quando uma resposta libera espaço. Um job cancelado (ou expirado)
+ * ainda na fila não é enviado; em voo, libera a janela e a resposta é
+ * descartada.
+ */
+public class S7PipelinedSession implements S7AsyncSession {
+
+    private final S7ProtocolClient client;
+    private final Semaphore janela;
+    private final Map<Integer, CompletableFuture<byte[]>> pendentes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Job> fila = new ConcurrentLinkedQueue<>();
+    private final Object writeLock = new Object();
+    private final Thread leitor;
+    private final long timeoutMs;
+
+    private int proximaReferencia = 1;
+    private volatile boolean aberta = true;
+    private volatile Exception falha;
+
+    private static final class Job {
+        final byte[] packet;
+        final CompletableFuture<byte[]> futuro = new CompletableFuture<>();
+        volatile int ref;  // 0 = ainda na fila
+
+        Job(byte[] packet) {
+            this.packet = packet;
+        }
+    }
+
+    public S7PipelinedSession(S7ProtocolClient client, long timeoutMs) {
+        this.client = client;
+        this.timeoutMs = timeoutMs;
+        this.janela = new Semaphore(Math.max(1, client.getMaxAmqCalled()));
+
+        leitor = new Thread(this::loopLeitura, "s7-pipeline-" + client.getPlcIpAddress());
+        leitor.setDaemon(true);
+        leitor.start();
+    }
+
+    public int getJobsEmVoo() {
+        return pendentes.size();
+    }
+
+    @Override
+    public int getPduLength() {
+        return client.getPduLength();
+    }
+
+    @Override
+    public int getMaxAmqCalled() {
+        return client.getMaxAmqCalled();
+    }
+
+    /**
+     * Envia um job (frame TPKT completo) e devolve o frame de resposta. O
+     * timeout conta a partir daqui, incluindo o tempo na fila.
+     */
+    @Override
+    public CompletableFuture<byte[]> submit(byte[] packet) {
+        if (!aberta) {
+            return CompletableFuture.failedFuture(new IOException("Sessão pipeline encerrada.", falha));
+        }
+
+        Job job = new Job(packet);
+        PlcMetrics metrics = client.getMetrics();
+        long inicio = System.nanoTime();
+
+        // Timeout/cancelamento: libera a janela e descarta a resposta se chegar depois
+        job.futuro.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((r, e) -> {
+            if (r != null) {
+                metrics.job(System.nanoTime() - inicio);
+                return;
+            }
+            if (e instanceof TimeoutException) {
+                metrics.timeout();
+            }
+            liberar(job);
+        });
+
+        fila.add(job);
+        if (!aberta) {
+            // Fechou entre a verificação e o add: ninguém mais drena a fila
+            job.futuro.completeExceptionally(new IOException("Sessão pipeline encerrada.", falha));
+        }
+        drenar();
+        return job.futuro;
+    }
+
+    // Envia os jobs da fila enquanto houver espaço na janela
+    private void drenar() {
+        while (!fila.isEmpty() && janela.tryAcquire()) {
+            Job job = fila.poll();
+            if (job == null || job.futuro.isDone()) {
+                janela.release(); // outro thread drenou, ou o job foi cancelado na fila
+                continue;
+            }
+            try {
+                synchronized (writeLock) {
+                    int ref = proximaReferencia;
+                    proximaReferencia = proximaReferencia == 0xFFFF ? 1 : proximaReferencia + 1;
+
+                    S7ProtocolClient.stampPduReference(job.packet, ref);
+                    pendentes.put(ref, job.futuro);
+                    job.ref = ref;
+                    client.sendFrame(job.packet);
+                }
+            } catch (Exception e) {
+                if (job.ref == 0 || pendentes.remove(job.ref, job.futuro)) {
+                    janela.release();
+                }
+                job.futuro.completeExceptionally(e);
+                encerrarComFalha(e);
+                return;
+            }
+            if (job.futuro.isDone()) {
+                liberar(job); // cancelado durante o envio
+            }
+        }
+    }
+
+    private void liberar(Job job) {
+        if (job.ref != 0 && pendentes.remove(job.ref, job.futuro)) {
+            janela.release();
+            drenar();
+        }
+    }
+
+    private void loopLeitura() {
+        while (aberta) {
+            try {
+                byte[] frame = client.receiveFrame();
+                if (frame.length < 13) {
+                    continue;
+                }
+                int ref = ((frame[11] & 0xFF) << 8) | (frame[12] & 0xFF);
+                CompletableFuture<byte[]> futuro = pendentes.remove(ref);
+                if (futuro != null) {
+                    janela.release();
+                    futuro.complete(frame);
+                    drenar();
+                }
+                // Resposta sem dono (job já expirou): descartada
+            } catch (SocketTimeoutException e) {
+                // Sem tráfego no intervalo (nenhum byte do próximo frame lido); os timeouts de
+                // cada job são tratados no submit. Timeout no meio de um frame chega como
+                // IOException comum e encerra a sessão abaixo
+            } catch (Exception e) {
+                if (aberta) {
+                    encerrarComFalha(e);
+                }
+            }
+        }
+    }
+
+    private void encerrarComFalha(Exception e) {
+        falha = e;
+        aberta = false;
+        for (Integer ref : pendentes.keySet()) {
+            CompletableFuture<byte[]> futuro = pendentes.remove(ref);
+            if (futuro != null) {
+                janela.release();
+                futuro.completeExceptionally(new IOException("Conexão pipeline perdida: " + e.getMessage(), e));
+            }
+        }
+        Job job;
+        while ((job = fila.poll()) != null) {
+            job.futuro.completeExceptionally(new IOException("Conexão pipeline perdida: " + e.getMessage(), e));
+        }
+    }
+
+    @Override
+    public boolean isAberta() {
+        return aberta;
+    }
+
+    @Override
+    public void close() {
+        if (aberta) {
+            encerrarComFalha(new IOException("Sessão pipeline fechada."));
+        }
+        leitor.interrupt();
+    }
+}
@@ -0,0 +1,537 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulador de CLP S7 (ISO-on-TCP) para testes de carga e latência sem a rede da planta.
+ *
+ * Implementa o mesmo subconjunto usado pelo S7ProtocolClient:
+ *   • TPKT + COTP CR/CC
+ *   • Setup Communication (negocia PDU e max AmQ)
+ *   • Read Var / Write Var em área DB, com vários itens por job
+ *
+ * Os DBs ficam em memória e são criados sob demanda. Um único thread com Selector
+ * atende todas as sessões; as respostas são atrasadas (latência + jitter) por um
+ * agendador, então milhares de sessões simultâneas cabem em um notebook.
+ *
+ * Como uma CPU real, jobs maiores que o PDU negociado são recusados e
+ * conexões além de maxConnections são fechadas logo após o accept.
+ *
+ * Uso:
+ *   S7PlcSimulator sim = new S7PlcSimulator(0).pduLength(480).latency(5, 2).start();
+ *   PlcConnector plc = new PlcConnector("127.0.0.1", sim.getPort());
+ */
+public class S7PlcSimulator implements Closeable {
+
+    private final int port;
+    private int pduLength = 960;
+    private int maxAmq = 8;
+    private int maxConnections = 10_000;
+    private int dbSize = 8192;
+    private long latencyMicros = 0;
+    private long jitterMicros = 0;
+
+    private final Map<Integer, byte[]> dbs = new ConcurrentHashMap<>();
+    private final AtomicInteger sessoesAtivas = new AtomicInteger();
+    private final Queue<Runnable> pendentesSelector = new ConcurrentLinkedQueue<>();
+
+    private ServerSocketChannel server;
+    private Selector selector;
+    private Thread ioThread;
+    private ScheduledExecutorService atrasos;
+    private volatile boolean running;
+
+    public S7PlcSimulator(int port) {
+        this.port = port;
+    }
+
+    // ------------------------------- Configuração -------------------------------
+    public S7PlcSimulator pduLength(int pduLength) {
+        this.pduLength = pduLength;
+        return this;
+    }
+
+    public S7PlcSimulator maxAmq(int maxAmq) {
+        this.maxAmq = Math.max(1, maxAmq);
+        return this;
+    }
+
+    public S7PlcSimulator maxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public S7PlcSimulator dbSize(int dbSize) {
+        this.dbSize = dbSize;
+        return this;
+    }
+
+    public S7PlcSimulator latency(long latencyMs, long jitterMs) {
+        this.latencyMicros = latencyMs * 1000;
+        this.jitterMicros = jitterMs * 1000;
+        return this;
+    }
+
+    public S7PlcSimulator latencyMicros(long latencyMicros, long jitterMicros) {
+        this.latencyMicros = latencyMicros;
+        this.jitterMicros = jitterMicros;
+        return this;
+    }
+
+    // Acesso direto à memória do DB (cria se ainda não existir)
+    public byte[] db(int numero) {
+        return dbs.computeIfAbsent(numero, n -> new byte[dbSize]);
+    }
+
+    public int getPort() {
+        return server != null ? server.socket().getLocalPort() : port;
+    }
+
+    public int getSessoesAtivas() {
+        return sessoesAtivas.get();
+    }
+
+    /**
+     * Processa um job S7 (frame TPKT completo) sem rede nem atraso e devolve a
+     * resposta. Usa a memória dos DBs do simulador; útil para montar frames de
+     * resposta em benchmarks do codec.
+     */
+    public byte[] responder(byte[] job) {
+        Sessao s = new Sessao(null);
+        s.pduLength = pduLength;
+        return processarJob(s, job);
+    }
+
+    // ------------------------------- Ciclo de vida -------------------------------
+    public S7PlcSimulator start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 4096);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        atrasos = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "s7sim-atrasos");
+            t.setDaemon(true);
+            return t;
+        });
+
+        running = true;
+        ioThread = new Thread(this::loop, "s7sim-io-" + getPort());
+        ioThread.setDaemon(true);
+        ioThread.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (selector != null) selector.wakeup();
+        try {
+            if (ioThread != null) ioThread.join(2000);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        if (atrasos != null) atrasos.shutdownNow();
+        try {
+            if (server != null) server.close();
+            if (selector != null) {
+                for (SelectionKey k : selector.keys()) {
+                    k.channel().close();
+                }
+                selector.close();
+            }
+        } catch (IOException ignored) {}
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                selector.select(100);
+                Runnable r;
+                while ((r = pendentesSelector.poll()) != null) r.run();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) aceitar();
+                        else {
+                            if (key.isReadable()) ler(key);
+                            if (key.isValid() && key.isWritable()) escrever(key);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // Frame malformado ou socket com erro: derruba só esta sessão
+                        fecharSessao(key);
+                    }
+                }
+            } catch (IOException e) {
+                if (running) System.err.println("Simulador: erro no selector: " + e.getMessage());
+            }
+        }
+    }
+
+    private void aceitar() throws IOException {
+        SocketChannel ch;
+        while ((ch = server.accept()) != null) {
+            // Limite de slots de conexão da CPU
+            if (sessoesAtivas.get() >= maxConnections) {
+                ch.close();
+                continue;
+            }
+            sessoesAtivas.incrementAndGet();
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            ch.register(selector, SelectionKey.OP_READ, new Sessao(ch));
+        }
+    }
+
+    private void fecharSessao(SelectionKey key) {
+        Sessao s = (Sessao) key.attachment();
+        key.cancel();
+        try { key.channel().close(); } catch (IOException ignored) {}
+        if (s != null && !s.fechada) {
+            s.fechada = true;
+            sessoesAtivas.decrementAndGet();
+        }
+    }
+
+    private void ler(SelectionKey key) throws IOException {
+        Sessao s = (Sessao) key.attachment();
+        int n = s.canal.read(s.entrada);
+        if (n < 0) {
+            fecharSessao(key);
+            return;
+        }
+        s.entrada.flip();
+        while (s.entrada.remaining() >= 4) {
+            int inicio = s.entrada.position();
+            int len = ((s.entrada.get(inicio + 2) & 0xFF) << 8) | (s.entrada.get(inicio + 3) & 0xFF);
+            if (len < 7) {
+                fecharSessao(key);
+                return;
+            }
+            if (len > s.entrada.capacity()) {
+                // Frame maior que o buffer: aumenta e espera o restante
+                ByteBuffer maior = ByteBuffer.allocate(len);
+                maior.put(s.entrada);
+                s.entrada = maior;
+                return;
+            }
+            if (s.entrada.remaining() < len) break;
+            byte[] frame = new byte[len];
+            s.entrada.get(frame);
+            tratarFrame(key, s, frame);
+        }
+        s.entrada.compact();
+    }
+
+    private void escrever(SelectionKey key) throws IOException {
+        Sessao s = (Sessao) key.attachment();
+        while (!s.saida.isEmpty()) {
+            ByteBuffer b = s.saida.peek();
+            s.canal.write(b);
+            if (b.hasRemaining()) return;
+            s.saida.poll();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void enviar(SelectionKey key, byte[] frame) {
+        Sessao s = (Sessao) key.attachment();
+        if (!key.isValid()) return;
+        s.saida.add(ByteBuffer.wrap(frame));
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    // ------------------------------- Protocolo -------------------------------
+    private void tratarFrame(SelectionKey key, Sessao s, byte[] frame) {
+        int pduType = frame[5] & 0xFF;
+
+        // COTP Connection Request -> Connection Confirm (ecoa os parâmetros)
+        if (pduType == 0xE0) {
+            byte[] cc = frame.clone();
+            cc[5] = (byte) 0xD0;
+            enviar(key, cc);
+            return;
+        }
+
+        // COTP DT com S7 Job
+        if (pduType != 0xF0 || frame.length < 17 || frame[7] != 0x32) {
+            return;
+        }
+
+        s.fila.add(frame);
+        despachar(key, s);
+    }
+
+    // Respeita o max AmQ: no máximo maxAmq jobs em processamento por sessão
+    private void despachar(SelectionKey key, Sessao s) {
+        while (s.emProcessamento < maxAmq && !s.fila.isEmpty()) {
+            byte[] job = s.fila.poll();
+            s.emProcessamento++;
+            byte[] resposta = processarJob(s, job);
+
+            long atraso = latencyMicros;
+            if (jitterMicros > 0) atraso += ThreadLocalRandom.current().nextLong(jitterMicros + 1);
+
+            Runnable entrega = () -> {
+                s.emProcessamento--;
+                if (resposta != null) enviar(key, resposta);
+                despachar(key, s);
+            };
+
+            if (atraso <= 0) {
+                entrega.run();
+            } else {
+                atrasos.schedule(() -> {
+                    pendentesSelector.add(() -> {
+                        if (s.fechada) return;
+                        try {
+                            entrega.run();
+                        } catch (RuntimeException e) {
+                            // Fora do try por chave do loop: um job malformado derruba só esta sessão
+                            fecharSessao(key);
+                        }
+                    });
+                    selector.wakeup();
+                }, atraso, TimeUnit.MICROSECONDS);
+            }
+        }
+    }
+
+    private byte[] processarJob(Sessao s, byte[] job) {
+        ByteBuffer in = ByteBuffer.wrap(job).order(ByteOrder.BIG_ENDIAN);
+        int pduRef = in.getShort(11) & 0xFFFF;
+        int paramLen = in.getShort(13) & 0xFFFF;
+        int funcao = job.length > 17 ? job[17] & 0xFF : 0;
+
+        if (!completo(job, funcao)) {
+            return ackErro(pduRef, funcao, 0x84, 0x04);
+        }
+
+        // Job maior que o PDU negociado (TPKT e COTP não contam)
+        if (funcao != 0xF0 && job.length - 7 > s.pduLength) {
+            return ackErro(pduRef, funcao, 0x85, 0x00);
+        }
+
+        return switch (funcao) {
+            case 0xF0 -> setupCommunication(s, in, pduRef);
+            case 0x04 -> readVar(s, job, pduRef);
+            case 0x05 -> writeVar(job, pduRef, paramLen);
+            default -> ackErro(pduRef, funcao, 0x81, 0x04);
+        };
+    }
+
+    // Job traz os campos lidos adiante: função e contagem, parâmetros do Setup, especificação de cada item
+    private static boolean completo(byte[] job, int funcao) {
+        if (job.length < 19) {
+            return false;
+        }
+        return switch (funcao) {
+            case 0xF0 -> job.length >= 25;
+            case 0x04, 0x05 -> job.length >= 19 + (job[18] & 0xFF) * 12;
+            default -> true;
+        };
+    }
+
+    private byte[] setupCommunication(Sessao s, ByteBuffer in, int pduRef) {
+        int pduPedido = in.getShort(23) & 0xFFFF;
+        s.pduLength = Math.min(pduPedido, pduLength);
+
+        ByteBuffer out = novoAck(pduRef, 8, 0);
+        out.put((byte) 0xF0).put((byte) 0x00);
+        out.putShort((short) maxAmq); // Max AmQ calling
+        out.putShort((short) maxAmq); // Max AmQ called
+        out.putShort((short) s.pduLength);
+        return out.array();
+    }
+
+    private byte[] readVar(Sessao s, byte[] job, int pduRef) {
+        int count = job[18] & 0xFF;
+        byte[][] dados = new byte[count][];
+        int[] rcs = new int[count];
+        boolean[] bits = new boolean[count];
+        int dataLen = 0;
+
+        for (int i = 0; i < count; i++) {
+            int p = 19 + i * 12;
+            bits[i] = job[p + 3] == 0x01;
+            int len = ((job[p + 4] & 0xFF) << 8) | (job[p + 5] & 0xFF);
+            int db = ((job[p + 6] & 0xFF) << 8) | (job[p + 7] & 0xFF);
+            int area = job[p + 8] & 0xFF;
+            int addr = ((job[p + 9] & 0xFF) << 16) | ((job[p + 10] & 0xFF) << 8) | (job[p + 11] & 0xFF);
+            int byteOff = addr >> 3;
+            int bit = addr & 0x07;
+
+            if (area != 0x84) {
+                rcs[i] = 0x03;
+            } else if (bits[i]) {
+                byte[] mem = db(db);
+                if (byteOff >= mem.length) rcs[i] = 0x05;
+                else {
+                    rcs[i] = 0xFF;
+                    dados[i] = new byte[]{(byte) ((mem[byteOff] >> bit) & 0x01)};
+                }
+            } else {
+                byte[] mem = db(db);
+                if (byteOff + len > mem.length) rcs[i] = 0x05;
+                else {
+                    rcs[i] = 0xFF;
+                    dados[i] = new byte[len];
+                    synchronized (mem) {
+                        System.arraycopy(mem, byteOff, dados[i], 0, len);
+                    }
+                }
+            }
+            int tam = 4 + (dados[i] != null ? dados[i].length : 0);
+            if (i < count - 1 && (tam % 2) != 0) tam++;
+            dataLen += tam;
+        }
+
+        // Resposta não cabe no PDU: a CPU recusa o job inteiro
+        if (12 + 2 + dataLen > s.pduLength) {
+            return ackErro(pduRef, 0x04, 0x85, 0x00);
+        }
+
+        ByteBuffer out = novoAck(pduRef, 2, dataLen);
+        out.put((byte) 0x04).put((byte) count);
+        for (int i = 0; i < count; i++) {
+            out.put((byte) rcs[i]);
+            if (dados[i] == null) {
+                // Item com erro: só o cabeçalho de 4 bytes, sem dados nem padding
+                out.put((byte) 0x00).putShort((short) 0);
+                continue;
+            }
+            out.put((byte) (bits[i] ? 0x03 : 0x04));
+            out.putShort((short) (bits[i] ? 1 : dados[i].length << 3));
+            out.put(dados[i]);
+            if (i < count - 1 && (dados[i].length % 2) != 0) out.put((byte) 0x00);
+        }
+        return out.array();
+    }
+
+    private byte[] writeVar(byte[] job, int pduRef, int paramLen) {
+        int count = job[18] & 0xFF;
+        int pd = 17 + paramLen; // início da seção de dados
+        int[] rcs = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            int p = 19 + i * 12;
+            boolean bit = job[p + 3] == 0x01;
+            int db = ((job[p + 6] & 0xFF) << 8) | (job[p + 7] & 0xFF);
+            int area = job[p + 8] & 0xFF;
+            int addr = ((job[p + 9] & 0xFF) << 16) | ((job[p + 10] & 0xFF) << 8) | (job[p + 11] & 0xFF);
+            int byteOff = addr >> 3;
+
+            if (pd + 4 > job.length) {
+                rcs[i] = 0x07;
+                continue;
+            }
+            int ts = job[pd + 1] & 0xFF;
+            int rawLen = ((job[pd + 2] & 0xFF) << 8) | (job[pd + 3] & 0xFF);
+            int len = (ts == 0x03 || ts == 0x04) ? (ts == 0x03 ? (rawLen + 7) / 8 : rawLen / 8) : rawLen;
+            int dados = pd + 4;
+            len = Math.min(len, job.length - dados);
+
+            byte[] mem = db(db);
+            if (area != 0x84) {
+                rcs[i] = 0x03;
+            } else if (bit && len < 1) {
+                rcs[i] = 0x07; // bit sem o byte de dado
+            } else if (byteOff + Math.max(1, len) > mem.length) {
+                rcs[i] = 0x05;
+            } else {
+                synchronized (mem) {
+                    if (bit) {
+                        int b = addr & 0x07;
+                        if ((job[dados] & 0x01) != 0) mem[byteOff] |= (byte) (1 << b);
+                        else mem[byteOff] &= (byte) ~(1 << b);
+                    } else {
+                        System.arraycopy(job, dados, mem, byteOff, len);
+                    }
+                }
+                rcs[i] = 0xFF;
+            }
+            pd = dados + len;
+            if (i < count - 1 && (len % 2) != 0) pd++;
+        }
+
+        ByteBuffer out = novoAck(pduRef, 2, count);
+        out.put((byte) 0x05).put((byte) count);
+        for (int rc : rcs) out.put((byte) rc);
+        return out.array();
+    }
+
+    private byte[] ackErro(int pduRef, int funcao, int errorClass, int errorCode) {
+        ByteBuffer out = novoAck(pduRef, 2, 0);
+        out.put(17, (byte) errorClass);
+        out.put(18, (byte) errorCode);
+        out.put((byte) funcao).put((byte) 0);
+        return out.array();
+    }
+
+    // TPKT + COTP + cabeçalho S7 Ack_Data (12 bytes), posicionado no início dos parâmetros
+    private static ByteBuffer novoAck(int pduRef, int paramLen, int dataLen) {
+        int total = 7 + 12 + paramLen + dataLen;
+        ByteBuffer out = ByteBuffer.allocate(total).order(ByteOrder.BIG_ENDIAN);
+        out.put((byte) 0x03).put((byte) 0x00).putShort((short) total);
+        out.put((byte) 0x02).put((byte) 0xF0).put((byte) 0x80);
+        out.put((byte) 0x32).put((byte) 0x03).putShort((short) 0);
+        out.putShort((short) pduRef);
+        out.putShort((short) paramLen).putShort((short) dataLen);
+        out.put((byte) 0x00).put((byte) 0x00); // Error class / code
+        return out;
+    }
+
+    private static final class Sessao {
+        final SocketChannel canal;
+        // Começa pequeno (milhares de sessões); cresce se vier um frame maior
+        ByteBuffer entrada = ByteBuffer.allocate(2048);
+        final Queue<ByteBuffer> saida = new ArrayDeque<>();
+        final Queue<byte[]> fila = new ArrayDeque<>();
+        int emProcessamento;
+        int pduLength = 240;
+        boolean fechada;
+
+        Sessao(SocketChannel canal) {
+            this.canal = canal;
+        }
+    }
+
+    // ------------------------------- Execução standalone -------------------------------
+    // Uso: java S7PlcSimulator [porta] [pdu] [maxAmq] [latenciaMs] [jitterMs] [maxConexoes]
+    public static void main(String[] args) throws Exception {
+        int porta = args.length > 0 ? Integer.parseInt(args[0]) : 102;
+        S7PlcSimulator sim = new S7PlcSimulator(porta);
+        if (args.length > 1) sim.pduLength(Integer.parseInt(args[1]));
+        if (args.length > 2) sim.maxAmq(Integer.parseInt(args[2]));
+        if (args.length > 4) sim.latency(Long.parseLong(args[3]), Long.parseLong(args[4]));
+        if (args.length > 5) sim.maxConnections(Integer.parseInt(args[5]));
+        sim.start();
+
+        System.out.println("Simulador S7 ouvindo na porta " + sim.getPort()
+                + " (PDU " + sim.pduLength + ", max AmQ " + sim.maxAmq + ")");
+        Runtime.getRuntime().addShutdownHook(new Thread(sim::close));
+        Thread.currentThread().join();
+    }
+}
@@ -1,31 +1,86 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.EOFException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class S7ProtocolClient {
 
     private final String plcIpAddress;
     private final int port;
+    private final int rack;
+    private final int slot;
     private Socket socket;
     private OutputStream outputStream;
     private InputStream inputStream;
 
+    // Timeout de conexão e de espera por uma resposta (ms)
+    private int timeoutMs = 5000;
+
+    // Contadores do CLP (compartilhados por todas as conexões com o mesmo ip:porta)
+    private final PlcMetrics metrics;
+
     // Construtor para inicializar o cliente S7ProtocolClient com o IP e porta do CLP
     public S7ProtocolClient(String plcIpAddress, int port) {
+        this(plcIpAddress, port, 0, 1);
+    }
+
+    // Rack/slot da CPU entram no TSAP remoto do COTP CR (S7-300: rack 0, slot 2; S7-1200/1500: 0, 1)
+    public S7ProtocolClient(String plcIpAddress, int port, int rack, int slot) {
         this.plcIpAddress = plcIpAddress;
         this.port = port;
+        this.rack = rack;
+        this.slot = slot;
+        this.metrics = PlcMetrics.forPlc(plcIpAddress, port);
+    }
+
+    public PlcMetrics getMetrics() {
+        return metrics;
+    }
+
+    public String getPlcIpAddress() {
+        return plcIpAddress;
+    }
+
+    public int getRack() {
+        return rack;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    // Socket aberto e sem EOF detectado (não garante que o CLP ainda responda)
+    public boolean isConnected() {
+        return socket != null && socket.isConnected() && !socket.isClosed();
+    }
+
+    public int getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(int timeoutMs) {
+        this.timeoutMs = timeoutMs;
     }
 
     public boolean connect() throws Exception {
         try {
             InetAddress address = InetAddress.getByName(plcIpAddress);
-            socket = new Socket(address, port);
+            socket = new Socket();
+            socket.setTcpNoDelay(true); // frames pequenos: não esperar o algoritmo de Nagle
+            socket.connect(new InetSocketAddress(address, port), timeoutMs);
+            socket.setSoTimeout(timeoutMs);
             outputStream = socket.getOutputStream();
             inputStream = socket.getInputStream();
             //System.out.println("Conexão estabelecida com o CLP: " + plcIpAddress + ":" + port);
@@ -35,17 +90,19 @@ public class S7ProtocolClient {
         }
     }
 
-    private byte[] createConnectionRequest() {
+    static byte[] createConnectionRequest(int rack, int slot) {
         return new byte[]{
             // TPKT Header
             0x03, 0x00, 0x00, 0x16,
             // COTP Header
             0x11, (byte) 0xE0, 0x00, 0x00, 0x00, 0x01,
-            0x00, (byte) 0xC1, 0x02, 0x01, 0x00, (byte) 0xC2, 0x02, 0x01, 0x01, (byte) 0xC0, 0x01, 0x09
+            // TSAP local (C1), TSAP remoto (C2: PG/OP, rack * 32 + slot), TPDU size (C0)
+            0x00, (byte) 0xC1, 0x02, 0x01, 0x00, (byte) 0xC2, 0x02, 0x01, (byte) ((rack << 5) | (slot & 0x1F)),
+            (byte) 0xC0, 0x01, 0x09
         };
     }
 
-    private byte[] createSetupCommunication() {
+    static byte[] createSetupCommunication(int requestedPduLength) {
         return new byte[]{
             // TPKT Header
             0x03, 0x00, 0x00, 0x19,
@@ -54,51 +111,92 @@ public class S7ProtocolClient {
             // S7 Header
             0x32, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x08, 0x00, 0x00,
             // Parameters
-            (byte) 0xF0, 0x00, 0x00, 0x01, 0x00, 0x01, (byte) 0x03, (byte) 0xC0
+            // Function, Reserved, Max AmQ calling, Max AmQ called, PDU length
+            (byte) 0xF0, 0x00, 0x00, 0x01, 0x00, 0x01,
+            (byte) ((requestedPduLength >> 8) & 0xFF), (byte) (requestedPduLength & 0xFF)
         };
     }
 
-    public byte[] createReadRequest(int db, int offset, int bit, int size, String type) {
+    public static byte[] createReadRequest(int db, int offset, int bit, int size, String type) {
+        return createReadRequest(db, offset, bit, size, S7DataType.of(type));
+    }
 
-        // Type: str ; real; int ; byte ; bool
-        byte tpSize = 0x00;
-        int startAddress = offset;
+    public static byte[] createReadRequest(int db, int offset, int bit, int size, S7DataType type) {
+        byte[] packet = new byte[READ_REQUEST_LENGTH];
+        encodeReadRequest(packet, db, offset, bit, size, type);
+        return packet;
+    }
 
-        // ((offset << 3) & 0xFFF8 | (bit & 0x07))
-        if ((size == 1) & (type.toLowerCase().equals("boolean"))) {
+    // Read Var de um item: 31 bytes (TPKT + COTP + cabeçalho S7 + parâmetros)
+    static final int READ_REQUEST_LENGTH = 31;
+
+    /**
+     * Monta o Read Var de um item direto em packet (reaproveitável entre
+     * leituras). Todos os bytes do frame são escritos.
+     */
+    static void encodeReadRequest(byte[] packet, int db, int offset, int bit, int size, S7DataType type) {
+
+        // Type: str ; real; int ; byte ; bool
+        byte tpSize;
+        int startAddress;
 
-            // System.out.println("Aqui em TAG Bit 1");
+        // Endereço em bits: (offset << 3) | bit, em 24 bits
+        if (type.transportSize(size) == 0x01) {
             tpSize = 0x01;
-            startAddress = (offset << 3) & 0xFFF8 | (bit & 0x07);
+            startAddress = (offset << 3) | (bit & 0x07);
         } else {
-            /// System.out.println("Aqui em TAG Bit 2");
             tpSize = 0x02;
             startAddress = offset << 3;
         }
 
-        return new byte[]{
-            // TPKT + COTP Header
-            0x03, 0x00, 0x00, (byte) (31), 0x02, (byte) 0xF0, (byte) 0x80,
-            // S7 Header
-            0x32, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x0E, 0x00, 0x00,
-            // Parameter: Function Code, Item Count
-            0x04, 0x01,
-            // Item Header: Variable Specification, Length of Following, Syntax ID
-            0x12, 0x0A, 0x10,
-            // Transport Size, Parameter length, DB Number (6), Area Type (DB)
-            tpSize, (byte) ((size >> 8) & 0xFF), (byte) (size & 0xFF),
-            (byte) ((db >> 8) & 0xFF), (byte) (db & 0xFF), (byte) 0x84,
-            // Address: Bit Address, Byte Offset (16), Reserved
-            0x00, (byte) ((startAddress >> 8) & 0xFF), (byte) (startAddress & 0xFF)
+        // TPKT + COTP Header
+        packet[0] = 0x03;
+        packet[1] = 0x00;
+        packet[2] = 0x00;
+        packet[3] = (byte) READ_REQUEST_LENGTH;
+        packet[4] = 0x02;
+        packet[5] = (byte) 0xF0;
+        packet[6] = (byte) 0x80;
+        // S7 Header: Job, PDU reference 0, parâmetros 14, dados 0
+        packet[7] = 0x32;
+        packet[8] = 0x01;
+        packet[9] = 0x00;
+        packet[10] = 0x00;
+        packet[11] = 0x00;
+        packet[12] = 0x00;
+        packet[13] = 0x00;
+        packet[14] = 0x0E;
+        packet[15] = 0x00;
+        packet[16] = 0x00;
+        // Parameter: Function Code, Item Count
+        packet[17] = 0x04;
+        packet[18] = 0x01;
+        // Item Header: Variable Specification, Length of Following, Syntax ID
+        packet[19] = 0x12;
+        packet[20] = 0x0A;
+        packet[21] = 0x10;
+        // Transport Size, Length, DB Number, Area Type (DB)
+        packet[22] = tpSize;
+        packet[23] = (byte) ((size >> 8) & 0xFF);
+        packet[24] = (byte) (size & 0xFF);
+        packet[25] = (byte) ((db >> 8) & 0xFF);
+        packet[26] = (byte) (db & 0xFF);
+        packet[27] = (byte) 0x84;
+        // Address
+        packet[28] = (byte) ((startAddress >> 16) & 0xFF);
+        packet[29] = (byte) ((startAddress >> 8) & 0xFF);
+        packet[30] = (byte) (startAddress & 0xFF);
+    }
 
-        };
+    public static byte[] createWriteRequest(int db, int offset, int bit, int size, String type, Object value) {
+        return createWriteRequest(db, offset, bit, size, S7DataType.of(type), value);
     }
 
-    public byte[] createWriteRequest(int db, int offset, int bit, int size, String type, Object value) {
+    public static byte[] createWriteRequest(int db, int offset, int bit, int size, S7DataType type, Object value) {
 
         // System.out.println("Aqui em createWriteRequest");
         int lenghtTag;
-        if (type.toLowerCase().equals("string")) {
+        if (type == S7DataType.STRING) {
             lenghtTag = size + 2;
         } else {
             lenghtTag = size;
@@ -115,7 +213,7 @@ public class S7ProtocolClient {
         int startAddress = offset;
 
         // ((offset << 3) & 0xFFF8 | (bit & 0x07))
-        if ((size == 1) & (type.toLowerCase().equals("boolean"))) {
+        if (type.transportSize(size) == 0x01) {
             tpSize = 0x01;
             startAddress = (offset << 3) & 0xFFF8 | (bit & 0x07);
         } else {
@@ -170,7 +268,7 @@ public class S7ProtocolClient {
         buffer.put((byte) 0x00); // Return code: Reserved (0x00)
         buffer.put((byte) (tpSize + 2)); // Transport Size: BIT (1)+2 , BYTE (2)+2
 
-        if (type.toLowerCase().equals("boolean")) {
+        if (type == S7DataType.BOOLEAN) {
 
             //System.out.println("Aqui Boolean: " + value);
             buffer.putShort((short) lenghtTag); // Length
@@ -178,19 +276,19 @@ public class S7ProtocolClient {
 
         }
 
-        if (type.toLowerCase().equals("integer")) {
+        if (type == S7DataType.INTEGER) {
             buffer.putShort((short) (lenghtTag << 3)); // Length
             buffer.putShort((short) ((int) value));
 
         }
 
-        if (type.toLowerCase().equals("byte")) {
+        if (type == S7DataType.BYTE) {
             buffer.putShort((short) (lenghtTag << 3)); // Length
             buffer.put((byte) ((byte) value));
 
         }
 
-        if (type.toLowerCase().equals("string")) {
+        if (type == S7DataType.STRING) {
 
             // System.out.println("Aqui String: " + value);
             buffer.putShort((short) (lenghtTag << 3)); // Length
@@ -202,7 +300,7 @@ public class S7ProtocolClient {
 
         }
 
-        if (type.toLowerCase().equals("block")) {
+        if (type == S7DataType.BLOCK) {
 
             // System.out.println("Aqui String: " + value);
             buffer.putShort((short) (lenghtTag << 3)); // Length
@@ -213,7 +311,7 @@ public class S7ProtocolClient {
 
         }
 
-        if (type.toLowerCase().equals("float")) {
+        if (type == S7DataType.FLOAT) {
 
             float valFloat = (float) value;
             ByteBuffer bufferFloat = ByteBuffer.allocate(Float.BYTES); // Aloca espaço suficiente para um float
@@ -228,6 +326,540 @@ public class S7ProtocolClient {
         return buffer.array();
     }
 
+    // --------------------------------------------------------------------------------------------
+    // Read Var com múltiplos itens
+    // --------------------------------------------------------------------------------------------
+    // Limite de itens por job aceito pelas CPUs S7
+    public static final int MAX_ITENS_POR_JOB = 20;
+
+    // Return codes locais (negativos) para itens que não chegaram a ser enviados/decodificados
+    public static final int RC_ITEM_EXCEDE_PDU = -1;
+    public static final int RC_ERRO_CABECALHO = -2;
+    public static final int RC_RESPOSTA_INVALIDA = -3;
+
+    // Tamanhos fixos do protocolo (sem TPKT/COTP)
+    private static final int S7_JOB_HEADER = 10;
+    private static final int S7_ACK_HEADER = 12;
+    private static final int READ_ITEM_SPEC = 12;
+    private static final int READ_ITEM_DATA_HEADER = 4;
+
+    // PDU mínimo garantido por qualquer CPU S7 (vale até o Setup Communication responder)
+    private int pduLength = 240;
+    private int maxAmqCalling = 1;
+    private int maxAmqCalled = 1;
+
+    // PDU pedido no Setup Communication; o CLP responde com o valor que aceita
+    private int requestedPduLength = 960;
+
+    public int getPduLength() {
+        return pduLength;
+    }
+
+    public int getMaxAmqCalling() {
+        return maxAmqCalling;
+    }
+
+    public int getMaxAmqCalled() {
+        return maxAmqCalled;
+    }
+
+    public void setRequestedPduLength(int requestedPduLength) {
+        this.requestedPduLength = requestedPduLength;
+    }
+
+    // Parâmetros negociados por outra conexão (transporte NIO): o planejamento usa os mesmos limites
+    void setNegotiated(int pduLength, int maxAmqCalling, int maxAmqCalled) {
+        this.pduLength = pduLength;
+        this.maxAmqCalling = maxAmqCalling;
+        this.maxAmqCalled = maxAmqCalled;
+    }
+
+    // Maior bloco de dados que cabe na resposta de um Read Var de um item
+    public int getMaxReadBlockSize() {
+        return pduLength - S7_ACK_HEADER - 2 - READ_ITEM_DATA_HEADER;
+    }
+
+    // Maior bloco de dados que cabe em um Write Var de um item (cabeçalho + parâmetros + dados)
+    public int getMaxWriteBlockSize() {
+        return pduLength - S7_JOB_HEADER - 2 - READ_ITEM_SPEC - 4;
+    }
+
+    // Quantos bytes o item ocupa na resposta (cabeçalho do item + dados, sem padding)
+    private static int responseItemLength(S7ReadItem item) {
+        return READ_ITEM_DATA_HEADER + item.responseDataLength();
+    }
+
+    public static byte[] createMultiReadRequest(List<S7ReadItem> itens) {
+
+        int paramLength = 2 + READ_ITEM_SPEC * itens.size();
+        int lengthPacket = 7 + S7_JOB_HEADER + paramLength;
+
+        ByteBuffer buffer = ByteBuffer.allocate(lengthPacket);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        // TPKT + COTP Header
+        buffer.put((byte) 0x03).put((byte) 0x00).putShort((short) lengthPacket);
+        buffer.put((byte) 0x02).put((byte) 0xF0).put((byte) 0x80);
+
+        // S7 Header
+        buffer.put((byte) 0x32); // Protocol ID
+        buffer.put((byte) 0x01); // ROSCTR: Job (1)
+        buffer.putShort((short) 0x0000); // Reserved
+        buffer.putShort((short) 0x0000); // PDU Reference
+        buffer.putShort((short) paramLength); // Parameter length
+        buffer.putShort((short) 0x0000); // Data length
+
+        // Parameter: Function Code, Item Count
+        buffer.put((byte) 0x04); // Function: Read Var (0x04)
+        buffer.put((byte) itens.size());
+
+        for (S7ReadItem item : itens) {
+            putItemSpec(buffer, item.db(), item.offset(), item.bit(), item.size(), item.isBit());
+        }
+
+        return buffer.array();
+    }
+
+    // Variable specification (12 bytes) no formato S7ANY para área DB
+    private static void putItemSpec(ByteBuffer buffer, int db, int offset, int bit, int size, boolean isBit) {
+        int startAddress = isBit ? (offset << 3) | (bit & 0x07) : offset << 3;
+
+        buffer.put((byte) 0x12); // Variable specification
+        buffer.put((byte) 0x0A); // Length of following address specification
+        buffer.put((byte) 0x10); // Syntax ID: S7ANY
+        buffer.put((byte) (isBit ? 0x01 : 0x02)); // Transport Size: BIT (1) BYTE (2)
+        buffer.putShort((short) size); // Length
+        buffer.putShort((short) db); // DB number
+        buffer.put((byte) 0x84); // Area: Data blocks (DB)
+        buffer.put((byte) ((startAddress >> 16) & 0xFF));
+        buffer.put((byte) ((startAddress >> 8) & 0xFF));
+        buffer.put((byte) (startAddress & 0xFF));
+    }
+
+    /**
+     * Divide a lista de itens em jobs que cabem no PDU negociado, tanto na
+     * requisição quanto na resposta, respeitando o limite de itens por job.
+     * Itens que sozinhos não cabem em um PDU ficam fora (retornam
+     * RC_ITEM_EXCEDE_PDU em sendMultiReadRequest).
+     */
+    public List<List<S7ReadItem>> planMultiRead(List<S7ReadItem> itens) {
+        return planMultiRead(itens, pduLength);
+    }
+
+    public static List<List<S7ReadItem>> planMultiRead(List<S7ReadItem> itens, int pduLength) {
+        List<List<S7ReadItem>> jobs = new ArrayList<>();
+        List<S7ReadItem> atual = new ArrayList<>();
+        int respostaAtual = S7_ACK_HEADER + 2;
+        int maxDados = pduLength - S7_ACK_HEADER - 2;
+
+        for (S7ReadItem item : itens) {
+            int tamItem = responseItemLength(item);
+            if (tamItem > maxDados) {
+                continue;
+            }
+            // padding do item anterior se ele terminou em tamanho ímpar
+            int padding = (respostaAtual - S7_ACK_HEADER - 2) % 2;
+            boolean cabeRequisicao = S7_JOB_HEADER + 2 + READ_ITEM_SPEC * (atual.size() + 1) <= pduLength;
+            boolean cabeResposta = respostaAtual + padding + tamItem <= pduLength;
+
+            if (atual.size() == MAX_ITENS_POR_JOB || !cabeRequisicao || !cabeResposta) {
+                jobs.add(atual);
+                atual = new ArrayList<>();
+                respostaAtual = S7_ACK_HEADER + 2;
+                padding = 0;
+            }
+            atual.add(item);
+            respostaAtual += padding + tamItem;
+        }
+        if (!atual.isEmpty()) {
+            jobs.add(atual);
+        }
+        return jobs;
+    }
+
+    @SuppressWarnings("UseSpecificCatch")
+    public List<S7ReadResult> sendMultiReadRequest(List<S7ReadItem> itens) throws Exception {
+
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        List<S7ReadResult> porJob = new ArrayList<>(itens.size());
+
+        try {
+            for (List<S7ReadItem> job : planMultiRead(itens)) {
+                byte[] packet = createMultiReadRequest(job);
+
+                length = exchange(packet);
+
+                porJob.addAll(parseMultiReadResponse(response, length, job));
+            }
+        } catch (Exception e) {
+            throw new Exception("Erro ao enviar o pacote de leitura múltipla: " + e.getMessage(), e);
+        }
+
+        return alignResults(itens, porJob);
+    }
+
+    // Recoloca os resultados na ordem dos itens pedidos; itens que não couberam em PDU algum viram erro
+    static List<S7ReadResult> alignResults(List<S7ReadItem> itens, List<S7ReadResult> porJob) {
+        Map<S7ReadItem, S7ReadResult> porItem = new IdentityHashMap<>();
+        for (S7ReadResult r : porJob) {
+            porItem.put(r.item(), r);
+        }
+
+        List<S7ReadResult> retorno = new ArrayList<>(itens.size());
+        for (S7ReadItem item : itens) {
+            S7ReadResult r = porItem.get(item);
+            retorno.add(r != null ? r : new S7ReadResult(item, RC_ITEM_EXCEDE_PDU, new byte[0]));
+        }
+        return retorno;
+    }
+
+    /**
+     * Decodifica a resposta de um Read Var com N itens. O cabeçalho S7 começa no
+     * byte 7 (após TPKT + COTP); os itens de dados começam no byte 21.
+     */
+    public static List<S7ReadResult> parseMultiReadResponse(byte[] frame, int length, List<S7ReadItem> job) {
+        List<S7ReadResult> resultados = new ArrayList<>(job.size());
+
+        int errorClass = length > 18 ? frame[17] & 0xFF : 0xFF;
+        int errorCode = length > 18 ? frame[18] & 0xFF : 0xFF;
+        if (length < 21 || errorClass != 0 || errorCode != 0) {
+            int rc = length < 21 ? RC_RESPOSTA_INVALIDA : RC_ERRO_CABECALHO;
+            for (S7ReadItem item : job) {
+                resultados.add(new S7ReadResult(item, rc, new byte[0]));
+            }
+            return resultados;
+        }
+
+        int pos = 21;
+        for (int i = 0; i < job.size(); i++) {
+            S7ReadItem item = job.get(i);
+            if (pos + READ_ITEM_DATA_HEADER > length) {
+                resultados.add(new S7ReadResult(item, RC_RESPOSTA_INVALIDA, new byte[0]));
+                continue;
+            }
+
+            int returnCode = frame[pos] & 0xFF;
+            int transportSize = frame[pos + 1] & 0xFF;
+            int rawLength = ((frame[pos + 2] & 0xFF) << 8) | (frame[pos + 3] & 0xFF);
+            int dataLength = dataLengthInBytes(transportSize, rawLength);
+            pos += READ_ITEM_DATA_HEADER;
+
+            if (returnCode != S7ReadResult.RC_SUCESSO) {
+                // Itens com erro não trazem dados (apenas o cabeçalho de 4 bytes)
+                resultados.add(new S7ReadResult(item, returnCode, new byte[0]));
+                continue;
+            }
+            if (pos + dataLength > length) {
+                resultados.add(new S7ReadResult(item, RC_RESPOSTA_INVALIDA, new byte[0]));
+                continue;
+            }
+
+            resultados.add(new S7ReadResult(item, returnCode, Arrays.copyOfRange(frame, pos, pos + dataLength)));
+            pos += dataLength;
+
+            // Padding para alinhar o próximo item em endereço par
+            if (i < job.size() - 1 && (dataLength % 2) != 0) {
+                pos++;
+            }
+        }
+        return resultados;
+    }
+
+    // Transport size 0x03 (BIT) e 0x04 (BYTE/WORD/DWORD) informam o tamanho em bits
+    private static int dataLengthInBytes(int transportSize, int rawLength) {
+        return switch (transportSize) {
+            case 0x03 -> (rawLength + 7) / 8;
+            case 0x04 -> rawLength / 8;
+            default -> rawLength;
+        };
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Write Var com múltiplos itens
+    // --------------------------------------------------------------------------------------------
+    /**
+     * Escrita em lote já planejada: partes de cada item (blocos maiores que o
+     * PDU divididos) e os jobs que cabem no PDU negociado.
+     */
+    record WriteBatch(List<S7WriteItem> itens, List<List<S7WriteItem>> partes, List<List<S7WriteItem>> jobs) {
+
+        // Um item só é OK se todas as suas partes foram; vale o primeiro erro
+        List<S7WriteResult> merge(List<S7WriteResult> porJob) {
+            Map<S7WriteItem, S7WriteResult> porParte = new IdentityHashMap<>();
+            for (S7WriteResult r : porJob) {
+                porParte.put(r.item(), r);
+            }
+
+            List<S7WriteResult> retorno = new ArrayList<>(itens.size());
+            for (int i = 0; i < itens.size(); i++) {
+                int rc = S7ReadResult.RC_SUCESSO;
+                for (S7WriteItem parte : partes.get(i)) {
+                    S7WriteResult r = porParte.get(parte);
+                    int rcParte = r != null ? r.returnCode() : RC_ITEM_EXCEDE_PDU;
+                    if (rcParte != S7ReadResult.RC_SUCESSO) {
+                        rc = rcParte;
+                        break;
+                    }
+                }
+                retorno.add(new S7WriteResult(itens.get(i), rc));
+            }
+            return retorno;
+        }
+    }
+
+    static WriteBatch planWriteBatch(List<S7WriteItem> itens, int pduLength) {
+        int maxDados = pduLength - S7_JOB_HEADER - 2 - READ_ITEM_SPEC - READ_ITEM_DATA_HEADER;
+
+        List<List<S7WriteItem>> partes = new ArrayList<>(itens.size());
+        List<S7WriteItem> todas = new ArrayList<>();
+        for (S7WriteItem item : itens) {
+            List<S7WriteItem> p = new ArrayList<>(1);
+            if (item.dataLength() > maxDados && S7DataType.of(item.type()) == S7DataType.BLOCK) {
+                byte[] bloco = (byte[]) item.value();
+                for (int pos = 0; pos < item.size(); pos += maxDados) {
+                    int len = Math.min(maxDados, item.size() - pos);
+                    p.add(S7WriteItem.block(item.db(), item.offset() + pos, Arrays.copyOfRange(bloco, pos, pos + len)));
+                }
+            } else {
+                p.add(item);
+            }
+            partes.add(p);
+            todas.addAll(p);
+        }
+        return new WriteBatch(itens, partes, planMultiWrite(todas, pduLength));
+    }
+
+    /**
+     * Agrupa os itens em jobs que cabem no PDU: cabeçalho + 12 bytes de
+     * especificação e 4 de cabeçalho de dados por item, mais os dados e o
+     * padding após itens de tamanho ímpar. Itens que não cabem sozinhos ficam
+     * de fora (RC_ITEM_EXCEDE_PDU no merge).
+     */
+    public static List<List<S7WriteItem>> planMultiWrite(List<S7WriteItem> itens, int pduLength) {
+        List<List<S7WriteItem>> jobs = new ArrayList<>();
+        List<S7WriteItem> atual = new ArrayList<>();
+        int tamanhoAtual = S7_JOB_HEADER + 2;
+        boolean ultimoImpar = false;
+
+        for (S7WriteItem item : itens) {
+            int tamItem = READ_ITEM_SPEC + READ_ITEM_DATA_HEADER + item.dataLength();
+            if (S7_JOB_HEADER + 2 + tamItem > pduLength) {
+                continue;
+            }
+            int padding = ultimoImpar ? 1 : 0;
+            if (atual.size() == MAX_ITENS_POR_JOB || tamanhoAtual + padding + tamItem > pduLength) {
+                jobs.add(atual);
+                atual = new ArrayList<>();
+                tamanhoAtual = S7_JOB_HEADER + 2;
+                padding = 0;
+            }
+            atual.add(item);
+            tamanhoAtual += padding + tamItem;
+            ultimoImpar = item.dataLength() % 2 != 0;
+        }
+        if (!atual.isEmpty()) {
+            jobs.add(atual);
+        }
+        return jobs;
+    }
+
+    public static byte[] createMultiWriteRequest(List<S7WriteItem> itens) {
+
+        byte[][] dados = new byte[itens.size()][];
+        int dataLength = 0;
+        for (int i = 0; i < itens.size(); i++) {
+            dados[i] = itens.get(i).encode();
+            dataLength += READ_ITEM_DATA_HEADER + dados[i].length;
+            if (i < itens.size() - 1 && dados[i].length % 2 != 0) {
+                dataLength++;
+            }
+        }
+        int paramLength = 2 + READ_ITEM_SPEC * itens.size();
+        int lengthPacket = 7 + S7_JOB_HEADER + paramLength + dataLength;
+
+        ByteBuffer buffer = ByteBuffer.allocate(lengthPacket);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        // TPKT + COTP Header
+        buffer.put((byte) 0x03).put((byte) 0x00).putShort((short) lengthPacket);
+        buffer.put((byte) 0x02).put((byte) 0xF0).put((byte) 0x80);
+
+        // S7 Header
+        buffer.put((byte) 0x32); // Protocol ID
+        buffer.put((byte) 0x01); // ROSCTR: Job (1)
+        buffer.putShort((short) 0x0000); // Reserved
+        buffer.putShort((short) 0x0000); // PDU Reference
+        buffer.putShort((short) paramLength); // Parameter length
+        buffer.putShort((short) dataLength); // Data length
+
+        // Parameter: Function Code, Item Count
+        buffer.put((byte) 0x05); // Function: Write Var (0x05)
+        buffer.put((byte) itens.size());
+
+        for (S7WriteItem item : itens) {
+            putItemSpec(buffer, item.db(), item.offset(), item.bit(), item.size(), item.isBit());
+        }
+
+        // Data: return code reservado, transport size BIT (0x03) ou BYTE (0x04, tamanho em bits)
+        for (int i = 0; i < itens.size(); i++) {
+            S7WriteItem item = itens.get(i);
+            buffer.put((byte) 0x00);
+            if (item.isBit()) {
+                buffer.put((byte) 0x03).putShort((short) 1);
+            } else {
+                buffer.put((byte) 0x04).putShort((short) (dados[i].length << 3));
+            }
+            buffer.put(dados[i]);
+            if (i < itens.size() - 1 && dados[i].length % 2 != 0) {
+                buffer.put((byte) 0x00); // padding
+            }
+        }
+
+        return buffer.array();
+    }
+
+    // Ack do Write Var: um return code por item a partir do byte 21
+    public static List<S7WriteResult> parseMultiWriteResponse(byte[] frame, int length, List<S7WriteItem> job) {
+        List<S7WriteResult> resultados = new ArrayList<>(job.size());
+
+        boolean erroCabecalho = length > 18 && (frame[17] != 0 || frame[18] != 0);
+        for (int i = 0; i < job.size(); i++) {
+            int rc;
+            if (erroCabecalho) {
+                rc = RC_ERRO_CABECALHO;
+            } else if (21 + i >= length) {
+                rc = RC_RESPOSTA_INVALIDA;
+            } else {
+                rc = frame[21 + i] & 0xFF;
+            }
+            resultados.add(new S7WriteResult(job.get(i), rc));
+        }
+        return resultados;
+    }
+
+    public List<S7WriteResult> sendMultiWriteRequest(List<S7WriteItem> itens) throws Exception {
+
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        WriteBatch lote = planWriteBatch(itens, pduLength);
+        List<S7WriteResult> porJob = new ArrayList<>();
+
+        try {
+            for (List<S7WriteItem> job : lote.jobs()) {
+                length = exchange(createMultiWriteRequest(job));
+
+                porJob.addAll(parseMultiWriteResponse(response, length, job));
+            }
+        } catch (Exception e) {
+            throw new Exception("Erro ao enviar o pacote de escrita múltipla: " + e.getMessage(), e);
+        }
+
+        return lote.merge(porJob);
+    }
+
+    public static String describeReturnCode(int returnCode) {
+        return switch (returnCode) {
+            case RC_ITEM_EXCEDE_PDU -> "Item maior que o PDU negociado";
+            case RC_ERRO_CABECALHO -> "CLP rejeitou o job (erro no cabeçalho S7)";
+            case RC_RESPOSTA_INVALIDA -> "Resposta incompleta ou inválida";
+            case 0x01 -> "Falha de hardware";
+            case 0x03 -> "Acesso ao objeto não permitido";
+            case 0x05 -> "Endereço fora da faixa";
+            case 0x06 -> "Tipo de dado não suportado";
+            case 0x07 -> "Tipo de dado inconsistente";
+            case 0x0A -> "Objeto não existe";
+            case 0xFF -> "Sucesso";
+            default -> String.format("Return code desconhecido (0x%02X)", returnCode);
+        };
+    }
+
+    /**
+     * Confere uma resposta de Read Var de um item antes de decodificar:
+     * cabeçalho Ack_Data, return code do item e se o frame traz os size bytes.
+     * Devolve a posição do dado no frame. A mensagem de erro (com DBn.offset)
+     * só é montada quando a resposta é rejeitada: leitura com sucesso não aloca.
+     */
+    static int checkReadResponse(byte[] frame, int length, int size, int db, int offset) throws Exception {
+        if (!readResponseOk(frame, length, size)) {
+            throw readResponseError(frame, length, "de DB" + db + "." + offset);
+        }
+        return 25;
+    }
+
+    static boolean readResponseOk(byte[] frame, int length, int size) {
+        return length >= 25 + Math.max(1, size) && frame[17] == 0 && frame[18] == 0
+                && (frame[21] & 0xFF) == S7ReadResult.RC_SUCESSO;
+    }
+
+    // Só no caminho de erro; alvo completa a mensagem ("de DB1.20", "da tag ...")
+    static Exception readResponseError(byte[] frame, int length, String alvo) {
+        if (length < 25 || frame[17] != 0 || frame[18] != 0) {
+            return new Exception("Resposta inválida na leitura " + alvo + ".");
+        }
+        int rc = frame[21] & 0xFF;
+        if (rc != S7ReadResult.RC_SUCESSO) {
+            return new Exception("Erro na leitura " + alvo + ": " + describeReturnCode(rc));
+        }
+        return new Exception("Resposta incompleta na leitura " + alvo + ".");
+    }
+
+    // Ack de Write Var de um item: cabeçalho sem erro (17/18) e return code 0xFF
+    static boolean writeAckOk(byte[] frame, int length) {
+        return length > 21 && frame[17] == 0 && frame[18] == 0 && frame[21] == (byte) 0xFF;
+    }
+
+    // Confere e converte a resposta de um Read Var feito fora do buffer response (pipeline)
+    static Object decodeReadResponse(byte[] frame, int db, int offset, int size, String type) throws Exception {
+        S7DataType tipo = S7DataType.of(type);
+        int pos = checkReadResponse(frame, frame.length, tipo.getTamanho() > 0 ? tipo.getTamanho() : size,
+                db, offset);
+        return decodeValue(tipo, frame, pos, size);
+    }
+
+    // Conversão de dados brutos conforme o tipo (mesma convenção dos extract*FromResponse)
+    public static Object decodeValue(String type, byte[] data, int pos, int size) {
+        return decodeValue(S7DataType.of(type), data, pos, size);
+    }
+
+    public static Object decodeValue(S7DataType type, byte[] data, int pos, int size) {
+        return switch (type) {
+            case STRING -> new String(data, pos, size).trim();
+            case BLOCK -> Arrays.copyOfRange(data, pos, pos + size);
+            case INTEGER -> getInt16(data, pos);
+            case FLOAT -> getFloat32(data, pos);
+            case BYTE -> data[pos];
+            case BOOLEAN -> (data[pos] & 0x01) == 1;
+        };
+    }
+
+    // Decodificação big-endian direto do array, sem ByteBuffer.wrap
+    static int getInt16(byte[] data, int pos) {
+        return (short) (((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF));
+    }
+
+    static float getFloat32(byte[] data, int pos) {
+        return Float.intBitsToFloat(((data[pos] & 0xFF) << 24) | ((data[pos + 1] & 0xFF) << 16)
+                | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF));
+    }
+
+    static void putInt16(byte[] data, int pos, int value) {
+        data[pos] = (byte) (value >> 8);
+        data[pos + 1] = (byte) value;
+    }
+
+    static void putFloat32(byte[] data, int pos, float value) {
+        int bits = Float.floatToRawIntBits(value);
+        data[pos] = (byte) (bits >> 24);
+        data[pos + 1] = (byte) (bits >> 16);
+        data[pos + 2] = (byte) (bits >> 8);
+        data[pos + 3] = (byte) bits;
+    }
+
     public static byte[] hexStringToByteArray(String hexString) {
         // Verifica se a string é válida
         if (hexString == null || hexString.length() % 2 != 0) {
@@ -253,24 +885,18 @@ public class S7ProtocolClient {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        byte[] packet = createConnectionRequest();
+        byte[] packet = createConnectionRequest(rack, slot);
 
         try {
-            outputStream.flush();
-            outputStream.write(packet);
-            outputStream.flush();
-
             // System.out.println("Solicitação de conexão enviada com sucesso ao CLP.");
-            // Leitura da resposta
-            byte[] response = new byte[1024];
-            int length = inputStream.read(response);
+            // Leitura da resposta: COTP Connection Confirm (0xD0)
+            length = exchange(packet);
 
             // System.out.println("Resposta de conexão recebida: " + bytesToHex(response,
             // length));
-            if (length > 0) {
-                //System.out.println("Resposta recebida da conexão: " + Arrays.toString(response));
-            } else {
-                //System.out.println("Nenhuma resposta recebida.");
+            if ((response[5] & 0xFF) != 0xD0) {
+                throw new Exception("CLP recusou a conexão COTP (PDU type 0x"
+                        + String.format("%02X", response[5] & 0xFF) + ").");
             }
 
         } catch (Exception e) {
@@ -283,24 +909,18 @@ public class S7ProtocolClient {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        byte[] packet = createSetupCommunication();
+        byte[] packet = createSetupCommunication(requestedPduLength);
 
         try {
-            outputStream.flush();
-            outputStream.write(packet);
-            outputStream.flush();
-
             // System.out.println("Pacote de configuração enviado com sucesso ao CLP.");
             // Leitura da resposta
-            byte[] response = new byte[1024];
-            int length = inputStream.read(response);
+            length = exchange(packet);
             // System.out.println("Resposta de configuração recebida: " +
             // bytesToHex(response, length));
-            if (length > 0) {
-                //System.out.println("Resposta recebida da configuração de comunicação: " + Arrays.toString(response));
-            } else {
-                //System.out.println("Nenhuma resposta recebida.");
-            }
+            SetupAck ack = parseSetupCommunicationAck(response, length);
+            maxAmqCalling = ack.maxAmqCalling();
+            maxAmqCalled = ack.maxAmqCalled();
+            pduLength = ack.pduLength();
         } catch (Exception e) {
             throw new Exception("Erro ao enviar o pacote de configuração: " + e.getMessage(), e);
         }
@@ -323,44 +943,38 @@ public class S7ProtocolClient {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
+        S7DataType tipo = S7DataType.of(type);
         byte[] packet = createReadRequest(db, offset, bit, size, type);
 
         try {
+            // Leitura da resposta (retorna assim que o frame completo chega)
+            length = exchange(packet);
+        } catch (Exception e) {
+            throw new Exception("Erro ao enviar o pacote de leitura: " + e.getMessage(), e);
+        }
 
-            outputStream.flush();
-            outputStream.write(packet);
-            outputStream.flush();
+        // response é reaproveitado: sem esta conferência um erro devolveria o valor do frame anterior
+        checkReadResponse(response, length, tipo.getTamanho() > 0 ? tipo.getTamanho() : size, db, offset);
 
-            Thread.sleep(50);
-            // Leitura da resposta
-            response = new byte[1024];
-            length = inputStream.read(response);
-
-            // Interpretação do valor lido
-            switch (type.toLowerCase()) {
-                case "string" ->
-                    value = extractStringFromResponse(response, size);
-                case "block" -> {
-                    value = extractBlockFromResponse(response, size);
-                    //System.out.println("Retorno de Leitura [Block] DB="+db+" OFFSET="+offset+" SIZE="+size+" : " + bytesToHex(extractBlockFromResponse(response, size),size));
-                }
-                case "integer" ->
-                    value = extractIntegerFromResponse(response);
-                case "float" ->
-                    value = extractFloatFromResponse(response);
-                case "byte" ->
-                    value = extractByteFromResponse(response);
-                case "boolean" ->
-                    value = extractBooleanFromResponse(response);
-                default ->
-                    throw new IllegalArgumentException("Tipo de variável não suportado.");
+        // Interpretação do valor lido
+        switch (tipo) {
+            case STRING ->
+                value = extractStringFromResponse(response, size);
+            case BLOCK -> {
+                value = extractBlockFromResponse(response, size);
+                //System.out.println("Retorno de Leitura [Block] DB="+db+" OFFSET="+offset+" SIZE="+size+" : " + bytesToHex(extractBlockFromResponse(response, size),size));
             }
-
-            return value;
-
-        } catch (Exception e) {
-            throw new Exception("Erro ao enviar o pacote de leitura: " + e.getMessage(), e);
+            case INTEGER ->
+                value = extractIntegerFromResponse(response);
+            case FLOAT ->
+                value = extractFloatFromResponse(response);
+            case BYTE ->
+                value = extractByteFromResponse(response);
+            case BOOLEAN ->
+                value = extractBooleanFromResponse(response);
         }
+
+        return value;
     }
 
     public boolean sendWriteRequest(int db, int offset, int bit, int size, String type, Object value) throws Exception {
@@ -373,16 +987,12 @@ public class S7ProtocolClient {
         byte[] packet = createWriteRequest(db, offset, bit, size, type, value);
 
         try {
-            outputStream.flush();
-            outputStream.write(packet);
-            outputStream.flush();
             // System.out.println("Solicitação de escrita enviada com sucesso ao CLP.");
 
-            // Leitura da resposta
-            response = new byte[50];
-            length = inputStream.read(response);
+            // Leitura da resposta (erro no cabeçalho S7 também conta como falha)
+            length = exchange(packet);
 
-            return response[21] == (byte) 0xFF;
+            return writeAckOk(response, length);
             // System.out.println("Resposta de conexão recebida: " + bytesToHex(response,
             // length) + " - ESCRITA - " + length);
 
@@ -392,25 +1002,321 @@ public class S7ProtocolClient {
 
     }
 
+    // --------------------------------------------------------------------------------------------
+    // Tags compiladas: frame pronto, buffers reaproveitados e retorno primitivo (sem boxing)
+    // --------------------------------------------------------------------------------------------
+    // Buffer de escrita reaproveitado (o template da tag é copiado e o valor preenchido nele)
+    private byte[] writeBuffer = new byte[64];
+
+    public int readInt(Tag tag) throws Exception {
+        return getInt16(response, readTag(tag));
+    }
+
+    public float readFloat(Tag tag) throws Exception {
+        return getFloat32(response, readTag(tag));
+    }
+
+    public byte readByte(Tag tag) throws Exception {
+        return response[readTag(tag)];
+    }
+
+    public boolean readBoolean(Tag tag) throws Exception {
+        return (response[readTag(tag)] & 0x01) == 1;
+    }
+
+    public boolean writeInt(Tag tag, int value) throws Exception {
+        int pos = prepareWrite(tag);
+        putInt16(writeBuffer, pos, value);
+        return writeTag(tag);
+    }
+
+    public boolean writeFloat(Tag tag, float value) throws Exception {
+        int pos = prepareWrite(tag);
+        putFloat32(writeBuffer, pos, value);
+        return writeTag(tag);
+    }
+
+    public boolean writeByte(Tag tag, byte value) throws Exception {
+        writeBuffer[prepareWrite(tag)] = value;
+        return writeTag(tag);
+    }
+
+    public boolean writeBoolean(Tag tag, boolean value) throws Exception {
+        writeBuffer[prepareWrite(tag)] = (byte) (value ? 0x01 : 0x00);
+        return writeTag(tag);
+    }
+
+    // Envia o Read Var pré-codificado da tag; retorna a posição do dado em response
+    private int readTag(Tag tag) throws Exception {
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        byte[] packet = tag.readRequest();
+        try {
+            length = exchange(packet);
+        } catch (IOException e) {
+            throw new Exception("Erro ao enviar o pacote de leitura: " + e.getMessage(), e);
+        }
+        return Tag.checkReadResponse(tag, response, length);
+    }
+
+    private int prepareWrite(Tag tag) {
+        byte[] template = tag.writeRequest();
+        if (writeBuffer.length < template.length) {
+            writeBuffer = new byte[template.length];
+        }
+        System.arraycopy(template, 0, writeBuffer, 0, template.length);
+        return Tag.WRITE_DATA_POS;
+    }
+
+    private boolean writeTag(Tag tag) throws Exception {
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        try {
+            length = exchange(writeBuffer, tag.writeRequest().length);
+        } catch (IOException e) {
+            throw new Exception("Erro ao enviar o pacote de escrita: " + e.getMessage(), e);
+        }
+        return writeAckOk(response, length);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Leitura direto para o destino do chamador (sem byte[] intermediário por requisição)
+    // --------------------------------------------------------------------------------------------
+    // Frame de Read Var reaproveitado: endereço regravado a cada parte
+    private final byte[] readBuffer = new byte[READ_REQUEST_LENGTH];
+
+    /**
+     * Lê dst.remaining() bytes a partir de offset e grava em dst (heap ou
+     * direto), avançando a posição. Blocos maiores que o PDU são lidos em partes.
+     */
+    public void readBlock(int db, int offset, ByteBuffer dst) throws Exception {
+        int total = dst.remaining();
+        int maxChunk = getMaxReadBlockSize();
+        for (int pos = 0; pos < total; pos += maxChunk) {
+            int len = Math.min(maxChunk, total - pos);
+            int dataPos = readRaw(db, offset + pos, len);
+            dst.put(response, dataPos, len);
+        }
+    }
+
+    // count INTs (16 bits) consecutivos a partir de offset, gravados em dst[from..]
+    public void readInts(int db, int offset, int[] dst, int from, int count) throws Exception {
+        int maxChunk = getMaxReadBlockSize() / 2;
+        for (int i = 0; i < count; i += maxChunk) {
+            int n = Math.min(maxChunk, count - i);
+            int dataPos = readRaw(db, offset + i * 2, n * 2);
+            for (int k = 0; k < n; k++) {
+                dst[from + i + k] = getInt16(response, dataPos + k * 2);
+            }
+        }
+    }
+
+    // count REALs (32 bits) consecutivos a partir de offset, gravados em dst[from..]
+    public void readFloats(int db, int offset, float[] dst, int from, int count) throws Exception {
+        int maxChunk = getMaxReadBlockSize() / 4;
+        for (int i = 0; i < count; i += maxChunk) {
+            int n = Math.min(maxChunk, count - i);
+            int dataPos = readRaw(db, offset + i * 4, n * 4);
+            for (int k = 0; k < n; k++) {
+                dst[from + i + k] = getFloat32(response, dataPos + k * 4);
+            }
+        }
+    }
+
+    /**
+     * count bits a partir do bit 0 de offset, empacotados em dst: o bit i
+     * (DBX offset + i/8 . i%8) fica em dst[i / 64], posição i % 64, a mesma
+     * ordem de BitSet.valueOf(long[]). Os bytes são lidos uma vez só.
+     */
+    public void readBits(int db, int offset, long[] dst, int count) throws Exception {
+        int palavras = (count + 63) >>> 6;
+        if (dst.length < palavras) {
+            throw new IllegalArgumentException("Destino com " + dst.length + " palavras para " + count + " bits.");
+        }
+        Arrays.fill(dst, 0, palavras, 0L);
+
+        int bytes = (count + 7) >>> 3;
+        int maxChunk = getMaxReadBlockSize() & ~7; // cada parte começa numa palavra nova
+        for (int i = 0; i < bytes; i += maxChunk) {
+            int n = Math.min(maxChunk, bytes - i);
+            packBits(response, readRaw(db, offset + i, n), n, dst, i);
+        }
+        clearBitsAfter(dst, count);
+    }
+
+    // Acrescenta n bytes de src[pos..] em dst a partir do byte byteInicial da sequência de bits
+    static void packBits(byte[] src, int pos, int n, long[] dst, int byteInicial) {
+        for (int k = 0; k < n; k++) {
+            int b = byteInicial + k;
+            dst[b >>> 3] |= (src[pos + k] & 0xFFL) << ((b & 7) << 3);
+        }
+    }
+
+    // Zera os bits do último byte lido que passam de count
+    static void clearBitsAfter(long[] dst, int count) {
+        int resto = count & 63;
+        if (resto != 0) {
+            dst[count >>> 6] &= (1L << resto) - 1;
+        }
+    }
+
+    // Um Read Var de len bytes; retorna a posição do dado em response
+    private int readRaw(int db, int offset, int len) throws Exception {
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        encodeReadRequest(readBuffer, db, offset, 0, len, S7DataType.BLOCK);
+        try {
+            length = exchange(readBuffer);
+        } catch (IOException e) {
+            throw new Exception("Erro ao enviar o pacote de leitura: " + e.getMessage(), e);
+        }
+
+        return checkReadResponse(response, length, len, db, offset);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Acesso a frames brutos (usado pelo modo pipeline)
+    // --------------------------------------------------------------------------------------------
+    // PDU reference fica nos bytes 11-12 (após TPKT, COTP, protocol id, ROSCTR e reservado)
+    public static void stampPduReference(byte[] packet, int pduRef) {
+        packet[11] = (byte) ((pduRef >> 8) & 0xFF);
+        packet[12] = (byte) (pduRef & 0xFF);
+    }
+
+    void sendFrame(byte[] packet) throws Exception {
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+        outputStream.write(packet);
+        outputStream.flush();
+        metrics.enviado(packet.length);
+    }
+
+    /**
+     * Recebe um frame completo e devolve uma cópia (o buffer interno é
+     * reaproveitado). SocketTimeoutException só sai daqui com a conexão ociosa,
+     * antes do primeiro byte; timeout com o frame pela metade deixaria o fluxo
+     * fora de sincronismo e vira IOException comum.
+     */
+    byte[] receiveFrame() throws IOException {
+        readFully(response, 0, 1);
+        int frameLength;
+        try {
+            frameLength = readFrame(1);
+        } catch (SocketTimeoutException e) {
+            throw new IOException("Timeout no meio de um frame TPKT: fluxo fora de sincronismo.", e);
+        }
+        metrics.recebido(frameLength);
+        return Arrays.copyOf(response, frameLength);
+    }
+
+    /**
+     * Ack do Setup Communication: parâmetros a partir do byte 19
+     * (função 0xF0, reservado, max AmQ calling, max AmQ called, PDU length).
+     */
+    record SetupAck(int maxAmqCalling, int maxAmqCalled, int pduLength) {}
+
+    static SetupAck parseSetupCommunicationAck(byte[] frame, int frameLength) throws Exception {
+        if (frameLength < 27 || (frame[8] & 0xFF) != 0x03 || (frame[19] & 0xFF) != 0xF0) {
+            throw new Exception("Resposta inválida ao Setup Communication.");
+        }
+        if (frame[17] != 0 || frame[18] != 0) {
+            throw new Exception(String.format("CLP rejeitou o Setup Communication (erro 0x%02X%02X).",
+                    frame[17] & 0xFF, frame[18] & 0xFF));
+        }
+
+        return new SetupAck(
+                ((frame[21] & 0xFF) << 8) | (frame[22] & 0xFF),
+                ((frame[23] & 0xFF) << 8) | (frame[24] & 0xFF),
+                ((frame[25] & 0xFF) << 8) | (frame[26] & 0xFF));
+    }
+
+    /**
+     * Requisição síncrona: envia o frame e espera a resposta em response.
+     * Conta bytes, round trip e timeouts nas métricas do CLP.
+     */
+    private int exchange(byte[] packet) throws IOException {
+        return exchange(packet, packet.length);
+    }
+
+    private int exchange(byte[] packet, int packetLength) throws IOException {
+        long inicio = System.nanoTime();
+        try {
+            outputStream.write(packet, 0, packetLength);
+            outputStream.flush();
+            int frameLength = readFrame();
+            metrics.requisicao(packetLength, frameLength, System.nanoTime() - inicio);
+            return frameLength;
+        } catch (SocketTimeoutException e) {
+            metrics.timeout();
+            throw e;
+        } catch (IOException e) {
+            metrics.erro();
+            throw e;
+        }
+    }
+
+    /**
+     * Lê exatamente um frame TPKT: primeiro os 4 bytes do cabeçalho, depois o
+     * restante anunciado no campo de tamanho. Não depende de como o TCP
+     * fragmentou a resposta. O frame fica em response; retorna o tamanho total.
+     */
+    private int readFrame() throws IOException {
+        return readFrame(0);
+    }
+
+    // jaLidos: bytes do cabeçalho TPKT que já estão em response
+    private int readFrame(int jaLidos) throws IOException {
+        readFully(response, jaLidos, 4 - jaLidos);
+        if (response[0] != 0x03) {
+            throw new IOException("Cabeçalho TPKT inválido (versão " + (response[0] & 0xFF) + ").");
+        }
+
+        int frameLength = ((response[2] & 0xFF) << 8) | (response[3] & 0xFF);
+        if (frameLength < 7) {
+            throw new IOException("Tamanho de frame TPKT inválido: " + frameLength);
+        }
+        if (frameLength > response.length) {
+            response = Arrays.copyOf(response, frameLength);
+        }
+
+        readFully(response, 4, frameLength - 4);
+        return frameLength;
+    }
+
+    private void readFully(byte[] buffer, int offset, int count) throws IOException {
+        while (count > 0) {
+            int n = inputStream.read(buffer, offset, count);
+            if (n < 0) {
+                throw new EOFException("Conexão encerrada pelo CLP no meio de um frame.");
+            }
+            offset += n;
+            count -= n;
+        }
+    }
+
     private int extractIntegerFromResponse(byte[] response) {
 
         // System.out.println("\n\nResposta de leitura Integer recebida: " +
         // bytesToHex(response, length));
         // System.out.println("\n\n");
-        return ByteBuffer.wrap(response, 25, 2).order(ByteOrder.BIG_ENDIAN).getShort();
+        return getInt16(response, 25);
     }
 
     private float extractFloatFromResponse(byte[] response) {
         //System.out.println("\n\nResposta de Leitura Float recebida: " + bytesToHex(response, length));
         //System.out.println(response.length);
-        return ByteBuffer.wrap(response, 25, 4).order(ByteOrder.BIG_ENDIAN).getFloat();
+        return getFloat32(response, 25);
     }
 
     private byte extractByteFromResponse(byte[] response) {
         // System.out.println("\n\nResposta de Leitura Float recebida: " +
         // bytesToHex(response, length));
         // System.out.println(response.length);
-        return ByteBuffer.wrap(response, 25, 1).order(ByteOrder.BIG_ENDIAN).get();
+        return response[25];
     }
 
     private byte[] extractBlockFromResponse(byte[] response, int size) {
@@ -456,11 +1362,23 @@ public class S7ProtocolClient {
         }
     }
 
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    // "03 00 1F ...": tabela de dígitos num char[] do tamanho exato, sem String.format por byte
     public static String bytesToHex(byte[] bytes, int length) {
-        StringBuilder sb = new StringBuilder();
+        if (length <= 0) {
+            return "";
+        }
+        char[] out = new char[length * 3 - 1];
+        int j = 0;
         for (int i = 0; i < length; i++) {
-            sb.append(String.format("%02X ", bytes[i]));
+            if (i > 0) {
+                out[j++] = ' ';
+            }
+            int v = bytes[i] & 0xFF;
+            out[j++] = HEX[v >>> 4];
+            out[j++] = HEX[v & 0x0F];
         }
-        return sb.toString().trim();
+        return new String(out);
     }
 }
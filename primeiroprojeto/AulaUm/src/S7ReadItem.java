@@ -0,0 +1,99 @@
+/**
+ * Especificação de uma variável para leitura em lote (Read Var com vários itens).
+ *
+ * Os tipos seguem os mesmos nomes usados em S7ProtocolClient.sendReadRequest:
+ * "boolean", "byte", "integer", "float", "string" e "block".
+ */
+public record S7ReadItem(int db, int offset, int bit, int size, String type) {
+
+    public static S7ReadItem bit(int db, int offset, int bit) {
+        return new S7ReadItem(db, offset, bit, 1, "boolean");
+    }
+
+    public static S7ReadItem ofByte(int db, int offset) {
+        return new S7ReadItem(db, offset, 0, 1, "byte");
+    }
+
+    public static S7ReadItem ofInt(int db, int offset) {
+        return new S7ReadItem(db, offset, 0, 2, "integer");
+    }
+
+    public static S7ReadItem ofFloat(int db, int offset) {
+        return new S7ReadItem(db, offset, 0, 4, "float");
+    }
+
+    public static S7ReadItem string(int db, int offset, int size) {
+        return new S7ReadItem(db, offset, 0, size, "string");
+    }
+
+    public static S7ReadItem block(int db, int offset, int size) {
+        return new S7ReadItem(db, offset, 0, size, "block");
+    }
+
+    /**
+     * Endereço no formato do TIA Portal: DB6.DBX20.3 (bit), DB6.DBB21 (byte),
+     * DB6.DBW10 (int) e DB6.DBD14 (real). DB6.DBB0[32] é um bloco de 32 bytes.
+     */
+    public static S7ReadItem parse(String endereco) {
+        String e = endereco.trim().toUpperCase();
+        int ponto = e.indexOf('.');
+        if (!e.startsWith("DB") || ponto < 3 || e.length() < ponto + 5 || !e.startsWith("DB", ponto + 1)) {
+            throw new IllegalArgumentException("Endereço inválido: " + endereco);
+        }
+        try {
+            int db = Integer.parseInt(e.substring(2, ponto));
+            String resto = e.substring(ponto + 4);
+            return switch (e.charAt(ponto + 3)) {
+                case 'X' -> {
+                    int p = resto.indexOf('.');
+                    int bit = p < 0 ? -1 : Integer.parseInt(resto.substring(p + 1));
+                    if (bit < 0 || bit > 7) {
+                        throw new IllegalArgumentException("Bit ausente ou fora de 0..7 em " + endereco);
+                    }
+                    yield bit(db, Integer.parseInt(resto.substring(0, p)), bit);
+                }
+                case 'B' -> {
+                    int colchete = resto.indexOf('[');
+                    if (colchete < 0) {
+                        yield ofByte(db, Integer.parseInt(resto));
+                    }
+                    if (!resto.endsWith("]")) {
+                        throw new IllegalArgumentException("Tamanho do bloco sem ']' em " + endereco);
+                    }
+                    int tamanho = Integer.parseInt(resto.substring(colchete + 1, resto.length() - 1));
+                    if (tamanho <= 0) {
+                        throw new IllegalArgumentException("Tamanho de bloco inválido em " + endereco);
+                    }
+                    yield block(db, Integer.parseInt(resto.substring(0, colchete)), tamanho);
+                }
+                case 'W' -> ofInt(db, Integer.parseInt(resto));
+                case 'D' -> ofFloat(db, Integer.parseInt(resto));
+                default -> throw new IllegalArgumentException("Área inválida (use DBX, DBB, DBW ou DBD): " + endereco);
+            };
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Endereço inválido: " + endereco);
+        }
+    }
+
+    // Inverso de parse (string e block: DBn.DBBoffset[size])
+    public String endereco() {
+        String db = "DB" + this.db + ".";
+        return switch (type.toLowerCase()) {
+            case "boolean" -> db + "DBX" + offset + "." + bit;
+            case "byte" -> db + "DBB" + offset;
+            case "integer" -> db + "DBW" + offset;
+            case "float" -> db + "DBD" + offset;
+            default -> db + "DBB" + offset + "[" + size + "]";
+        };
+    }
+
+    // Leitura com transport size BIT (endereço com o número do bit)
+    public boolean isBit() {
+        return size == 1 && type.equalsIgnoreCase("boolean");
+    }
+
+    // Quantidade de bytes de dados que o CLP devolve para este item
+    public int responseDataLength() {
+        return isBit() ? 1 : size;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Resultado de um item de uma leitura em lote.
+ *
+ * Cada item traz o seu próprio return code, então um endereço inválido não
+ * derruba o restante do lote.
+ */
+public record S7ReadResult(S7ReadItem item, int returnCode, byte[] data) {
+
+    public static final int RC_SUCESSO = 0xFF;
+
+    public boolean isOk() {
+        return returnCode == RC_SUCESSO;
+    }
+
+    // Valor já convertido conforme o tipo do item (mesma convenção de sendReadRequest)
+    public Object getValue() throws Exception {
+        if (!isOk()) {
+            throw new Exception("Erro na leitura do item DB" + item.db() + "." + item.offset() + ": " + getErro());
+        }
+        return S7ProtocolClient.decodeValue(item.type(), data, 0, data.length);
+    }
+
+    public String getErro() {
+        return isOk() ? null : S7ProtocolClient.describeReturnCode(returnCode);
+    }
+}
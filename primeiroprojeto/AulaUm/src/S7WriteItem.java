@@ -0,0 +1,67 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Especificação de uma variável para escrita em lote (Write Var com vários itens).
+ *
+ * Os tipos seguem os mesmos nomes de S7ReadItem: "boolean", "byte",
+ * "integer", "float", "string" e "block".
+ */
+public record S7WriteItem(int db, int offset, int bit, int size, String type, Object value) {
+
+    public static S7WriteItem bit(int db, int offset, int bit, boolean value) {
+        return new S7WriteItem(db, offset, bit, 1, "boolean", value);
+    }
+
+    public static S7WriteItem ofByte(int db, int offset, byte value) {
+        return new S7WriteItem(db, offset, 0, 1, "byte", value);
+    }
+
+    public static S7WriteItem ofInt(int db, int offset, int value) {
+        return new S7WriteItem(db, offset, 0, 2, "integer", value);
+    }
+
+    public static S7WriteItem ofFloat(int db, int offset, float value) {
+        return new S7WriteItem(db, offset, 0, 4, "float", value);
+    }
+
+    public static S7WriteItem string(int db, int offset, int size, String value) {
+        return new S7WriteItem(db, offset, 0, size, "string", value);
+    }
+
+    public static S7WriteItem block(int db, int offset, byte[] value) {
+        return new S7WriteItem(db, offset, 0, value.length, "block", value);
+    }
+
+    // Escrita com transport size BIT (endereço com o número do bit)
+    public boolean isBit() {
+        return size == 1 && type.equalsIgnoreCase("boolean");
+    }
+
+    // Bytes de dados do item no Write Var (string leva os 2 bytes de cabeçalho S7)
+    public int dataLength() {
+        return S7DataType.of(type) == S7DataType.STRING ? size + 2 : size;
+    }
+
+    // Dados no formato do CLP (big-endian), mesma convenção de createWriteRequest
+    public byte[] encode() {
+        byte[] data = new byte[dataLength()];
+        switch (S7DataType.of(type)) {
+            case BOOLEAN -> data[0] = (byte) ((boolean) value ? 0x01 : 0x00);
+            case BYTE -> data[0] = (byte) value;
+            case INTEGER -> S7ProtocolClient.putInt16(data, 0, (int) value);
+            case FLOAT -> S7ProtocolClient.putFloat32(data, 0, (float) value);
+            case STRING -> {
+                byte[] texto = ((String) value).trim().getBytes(StandardCharsets.UTF_8);
+                int len = Math.min(texto.length, size);
+                data[0] = (byte) size;
+                data[1] = (byte) len;
+                System.arraycopy(texto, 0, data, 2, len);
+            }
+            case BLOCK -> {
+                byte[] bloco = (byte[]) value;
+                System.arraycopy(bloco, 0, data, 0, Math.min(bloco.length, size));
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Resultado de um item de uma escrita em lote.
+ *
+ * Como na leitura, cada item traz o seu próprio return code; um endereço
+ * inválido não impede a escrita dos demais.
+ */
+public record S7WriteResult(S7WriteItem item, int returnCode) {
+
+    public boolean isOk() {
+        return returnCode == S7ReadResult.RC_SUCESSO;
+    }
+
+    public String getErro() {
+        return isOk() ? null : S7ProtocolClient.describeReturnCode(returnCode);
+    }
+}
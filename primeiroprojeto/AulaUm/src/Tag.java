@@ -0,0 +1,130 @@
+/**
+ * Tag compilada: endereço e tipo resolvidos uma única vez.
+ *
+ * O frame de Read Var (e, para os tipos de tamanho fixo, o de Write Var) é
+ * montado na compilação e reaproveitado a cada acesso. Junto com os métodos
+ * getInt/getFloat/getBoolean do PlcConnector, um loop de polling não gera
+ * lixo: sem String de tipo, sem byte[] de requisição e sem boxing do valor.
+ *
+ * Uso:
+ *   Tag velocidade = Tag.ofInt(6, 10);
+ *   int v = connector.getInt(velocidade);
+ */
+public final class Tag {
+
+    // Posição do primeiro byte de dado no Read Var/Write Var de um item
+    static final int READ_DATA_POS = 25;
+    static final int WRITE_DATA_POS = 35;
+
+    private final int db;
+    private final int offset;
+    private final int bit;
+    private final int size;
+    private final S7DataType type;
+
+    // Frames pré-codificados: compartilhados, nunca alterados depois de criados
+    private final byte[] readRequest;
+    private final byte[] writeRequest;
+
+    private Tag(int db, int offset, int bit, int size, S7DataType type) {
+        this.db = db;
+        this.offset = offset;
+        this.bit = bit;
+        this.size = size;
+        this.type = type;
+
+        readRequest = S7ProtocolClient.createReadRequest(db, offset, bit, size, type);
+        writeRequest = switch (type) {
+            case BOOLEAN -> S7ProtocolClient.createWriteRequest(db, offset, bit, size, type, false);
+            case BYTE -> S7ProtocolClient.createWriteRequest(db, offset, bit, size, type, (byte) 0);
+            case INTEGER -> S7ProtocolClient.createWriteRequest(db, offset, bit, size, type, 0);
+            case FLOAT -> S7ProtocolClient.createWriteRequest(db, offset, bit, size, type, 0f);
+            default -> null; // string e block têm conteúdo variável: usam writeString/writeBlock
+        };
+    }
+
+    public static Tag compile(int db, int offset, int bit, int size, S7DataType type) {
+        if (type.getTamanho() > 0 && size != type.getTamanho()) {
+            throw new IllegalArgumentException("Tamanho " + size + " inválido para o tipo " + type.getNome() + ".");
+        }
+        return new Tag(db, offset, bit, size, type);
+    }
+
+    public static Tag bit(int db, int offset, int bit) {
+        return new Tag(db, offset, bit, 1, S7DataType.BOOLEAN);
+    }
+
+    public static Tag ofByte(int db, int offset) {
+        return new Tag(db, offset, 0, 1, S7DataType.BYTE);
+    }
+
+    public static Tag ofInt(int db, int offset) {
+        return new Tag(db, offset, 0, 2, S7DataType.INTEGER);
+    }
+
+    public static Tag ofFloat(int db, int offset) {
+        return new Tag(db, offset, 0, 4, S7DataType.FLOAT);
+    }
+
+    public static Tag string(int db, int offset, int size) {
+        return new Tag(db, offset, 0, size, S7DataType.STRING);
+    }
+
+    public static Tag block(int db, int offset, int size) {
+        return new Tag(db, offset, 0, size, S7DataType.BLOCK);
+    }
+
+    public int getDb() {
+        return db;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public S7DataType getType() {
+        return type;
+    }
+
+    // Mesmo endereço como item de leitura em lote (ReadPlanner, PollGroup)
+    public S7ReadItem toReadItem() {
+        return new S7ReadItem(db, offset, bit, size, type.getNome());
+    }
+
+    byte[] readRequest() {
+        return readRequest;
+    }
+
+    byte[] writeRequest() {
+        if (writeRequest == null) {
+            throw new IllegalArgumentException("Tag do tipo " + type.getNome() + " não tem escrita pré-codificada.");
+        }
+        return writeRequest;
+    }
+
+    /**
+     * Confere o cabeçalho e o return code do item de uma resposta de Read Var
+     * e devolve a posição do dado no frame.
+     */
+    static int checkReadResponse(Tag tag, byte[] frame, int length) throws Exception {
+        if (!S7ProtocolClient.readResponseOk(frame, length, tag.size)) {
+            throw S7ProtocolClient.readResponseError(frame, length, "da tag " + tag);
+        }
+        return READ_DATA_POS;
+    }
+
+    @Override
+    public String toString() {
+        return type == S7DataType.BOOLEAN
+                ? "DB" + db + ".DBX" + offset + "." + bit
+                : "DB" + db + "." + offset + " (" + type.getNome() + ")";
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * Mudança publicada por uma assinatura: o índice é a posição da tag em
+ * PollGroup.tags() e timestampMillis o início do ciclo em que foi lida.
+ */
+public record TagChange(int indice, S7ReadResult resultado, long timestampMillis) {
+
+    public S7ReadItem item() {
+        return resultado.item();
+    }
+}